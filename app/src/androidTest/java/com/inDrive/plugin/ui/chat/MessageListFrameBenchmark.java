@@ -0,0 +1,104 @@
+package com.inDrive.plugin.ui.chat;
+
+import android.Manifest;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.rule.GrantPermissionRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.Choreographer;
+
+import com.inDrive.plugin.ui.chat.model.Message;
+import com.inDrive.plugin.ui.chat.model.Sender;
+import com.inDrive.plugin.voice.MainActivity;
+import com.inDrive.plugin.voice.R;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Records frame times of the chat over a 1,000 message session, one message per frame, the way
+ * turns and ride progress announcements pile up on a long ride. Frame times are the intervals
+ * between Choreographer frame callbacks, so dropped frames show up as long intervals. Results
+ * are logged under the "MessageListFrames" tag and reported as instrumentation status.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class MessageListFrameBenchmark {
+    private static final String TAG = "MessageListFrames";
+    private static final int MESSAGES = 1000;
+    private static final long FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(17);
+
+    @Rule
+    public GrantPermissionRule permissionRule = GrantPermissionRule.grant(
+            Manifest.permission.RECORD_AUDIO,
+            Manifest.permission.ACCESS_COARSE_LOCATION,
+            Manifest.permission.ACCESS_FINE_LOCATION);
+
+    @Rule
+    public ActivityTestRule<MainActivity> activityRule = new ActivityTestRule<>(MainActivity.class);
+
+    @Test
+    public void appendMessagesOnePerFrame() throws InterruptedException {
+        MainActivity activity = activityRule.getActivity();
+        RecyclerView recyclerView = activity.findViewById(R.id.recycler_chat);
+        MessageListAdapter adapter = (MessageListAdapter) recyclerView.getAdapter();
+        List<Long> frameNanos = new ArrayList<>(MESSAGES);
+        CountDownLatch done = new CountDownLatch(1);
+
+        activity.runOnUiThread(() -> Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+            private int sent;
+            private long lastFrameNanos;
+
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                if (lastFrameNanos != 0)
+                    frameNanos.add(frameTimeNanos - lastFrameNanos);
+                lastFrameNanos = frameTimeNanos;
+                if (sent == MESSAGES) {
+                    done.countDown();
+                    return;
+                }
+
+                Sender sender = sent % 3 == 0 ? Sender.USER : Sender.SYSTEM;
+                adapter.addMessage(new Message("Message " + sent + ". Your driver is arriving in 4 minutes.", sender));
+                recyclerView.scrollToPosition(adapter.getItemCount() - 1);
+                sent++;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }));
+        assertTrue("Session did not finish", done.await(2, TimeUnit.MINUTES));
+
+        Collections.sort(frameNanos);
+        int janky = 0;
+        for (long nanos : frameNanos) {
+            if (nanos > FRAME_BUDGET_NANOS) janky++;
+        }
+        Bundle results = new Bundle();
+        results.putInt("frames", frameNanos.size());
+        results.putInt("jankyFrames", janky);
+        results.putDouble("p50Millis", percentile(frameNanos, 0.50));
+        results.putDouble("p90Millis", percentile(frameNanos, 0.90));
+        results.putDouble("p99Millis", percentile(frameNanos, 0.99));
+        results.putDouble("maxMillis", frameNanos.get(frameNanos.size() - 1) / 1e6);
+        Log.i(TAG, results.toString());
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+    }
+
+    private static double percentile(List<Long> sortedNanos, double fraction) {
+        int index = (int) Math.ceil(fraction * sortedNanos.size()) - 1;
+        return sortedNanos.get(Math.max(0, index)) / 1e6;
+    }
+}
@@ -0,0 +1,174 @@
+package com.inDrive.plugin.common;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.inDrive.plugin.common.callbacks.ActionListenerCallback;
+import com.inDrive.plugin.dialogue.Announcement;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Queue in front of the {@link TextToSpeechProvider}, so the rider hears current information
+ * rather than everything in the order it was produced. Only one announcement is handed to speech
+ * at a time, and which one is decided when speech is free: the most urgent, oldest first, that
+ * has not outlived its {@link Announcement#getMaxAgeMillis()}. A new announcement on a topic
+ * replaces any still waiting on it, so e.g. only the latest driver ETA is read out.
+ * <p>
+ * All speech should go through here, as it tells when an announcement is done from the
+ * provider's callbacks. Should neither callback come, e.g. as speech failed outright, the next
+ * announcement is handed over after a timeout. How long announcements waited
+ * is logged and kept as statistics.
+ */
+public class AnnouncementScheduler implements ActionListenerCallback {
+    private static final String TAG = "AnnouncementScheduler";
+
+    // Longest an announcement may take from being handed to speech, or from being picked, until
+    // speech reports it done.
+    private static final long SPEAK_TIMEOUT_MILLIS = 20_000;
+
+    private TextToSpeechProvider textToSpeechProvider;
+
+    private PriorityQueue<Queued> queue = new PriorityQueue<>(Comparator
+            .comparing((Queued queued) -> queued.announcement.getPriority())
+            .thenComparingLong(queued -> queued.sequence));
+    private long sequence;
+    private boolean isSpeaking;
+    // Counts hand-overs to speech, so a timeout or pick of an earlier one is told apart.
+    private long attempt;
+    private long speakDeadline;
+    private Handler handler = new Handler(Looper.getMainLooper());
+
+    private long spoken;
+    private long superseded;
+    private long expired;
+    private long totalWaitMillis;
+    private long maxWaitMillis;
+
+    public AnnouncementScheduler(TextToSpeechProvider textToSpeechProvider) {
+        this.textToSpeechProvider = textToSpeechProvider;
+        textToSpeechProvider.registerActionListenerCallback(this);
+    }
+
+    public synchronized void enqueue(Announcement announcement) {
+        if (announcement.getTopic() != null) {
+            int before = queue.size();
+            queue.removeIf(queued -> announcement.getTopic().equals(queued.announcement.getTopic()));
+            superseded += before - queue.size();
+        }
+        queue.add(new Queued(announcement, sequence++, SystemClock.elapsedRealtime()));
+        speakNextIfIdle();
+    }
+
+    public synchronized long getSpoken() {
+        return spoken;
+    }
+
+    public synchronized long getSuperseded() {
+        return superseded;
+    }
+
+    public synchronized long getExpired() {
+        return expired;
+    }
+
+    /**
+     * @return mean time spoken announcements waited between being queued and being spoken
+     */
+    public synchronized long getMeanWaitMillis() {
+        return spoken == 0 ? 0 : totalWaitMillis / spoken;
+    }
+
+    public synchronized long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    @Override
+    public void onActionStarted() {
+    }
+
+    @Override
+    public synchronized void onActionCompleted(Map<String, Object> resultMap) {
+        isSpeaking = false;
+        speakNextIfIdle();
+    }
+
+    @Override
+    public synchronized void onActionFailed() {
+        isSpeaking = false;
+        speakNextIfIdle();
+    }
+
+    private void speakNextIfIdle() {
+        if (isSpeaking || queue.isEmpty()) return;
+
+        isSpeaking = true;
+        long current = ++attempt;
+        speakDeadline = SystemClock.elapsedRealtime() + SPEAK_TIMEOUT_MILLIS;
+        try {
+            textToSpeechProvider.speak(() -> takeNext(current));
+        } catch (RuntimeException ex) {
+            // Left queued for the next enqueue to try again.
+            Log.e(TAG, "Could not hand the next announcement to speech.", ex);
+            isSpeaking = false;
+            return;
+        }
+        handler.postDelayed(() -> checkSpeaking(current), SPEAK_TIMEOUT_MILLIS);
+    }
+
+    private synchronized void checkSpeaking(long current) {
+        if (current != attempt || !isSpeaking) return;
+
+        long remainingMillis = speakDeadline - SystemClock.elapsedRealtime();
+        if (remainingMillis > 0) {
+            handler.postDelayed(() -> checkSpeaking(current), remainingMillis);
+            return;
+        }
+        Log.w(TAG, String.format("Speech did not report back within %d ms, moving on.", SPEAK_TIMEOUT_MILLIS));
+        isSpeaking = false;
+        speakNextIfIdle();
+    }
+
+    // Called on the speech thread once it may speak.
+    private synchronized String takeNext(long current) {
+        // Given up on already, and a later hand-over picks instead.
+        if (current != attempt) return null;
+
+        long now = SystemClock.elapsedRealtime();
+        Queued next;
+        while ((next = queue.poll()) != null) {
+            long waitMillis = now - next.queuedAt;
+            long maxAgeMillis = next.announcement.getMaxAgeMillis();
+            if (maxAgeMillis > 0 && waitMillis > maxAgeMillis) {
+                expired++;
+                Log.d(TAG, String.format("Dropped after %d ms: %s", waitMillis, next.announcement.getText()));
+                continue;
+            }
+
+            spoken++;
+            totalWaitMillis += waitMillis;
+            maxWaitMillis = Math.max(maxWaitMillis, waitMillis);
+            Log.d(TAG, String.format("Speaking after %d ms: %s", waitMillis, next.announcement.getText()));
+            speakDeadline = now + SPEAK_TIMEOUT_MILLIS;
+            return next.announcement.getText();
+        }
+        isSpeaking = false;
+        return null;
+    }
+
+    private static class Queued {
+        private Announcement announcement;
+        private long sequence;
+        private long queuedAt;
+
+        private Queued(Announcement announcement, long sequence, long queuedAt) {
+            this.announcement = announcement;
+            this.sequence = sequence;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
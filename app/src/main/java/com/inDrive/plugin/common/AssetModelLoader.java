@@ -0,0 +1,35 @@
+package com.inDrive.plugin.common;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import com.inDrive.plugin.nlp.ModelLoader;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class AssetModelLoader implements ModelLoader {
+    private Context context;
+
+    public AssetModelLoader(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+        return context.getAssets().open(name);
+    }
+
+    @Override
+    public ByteBuffer map(String name) throws IOException {
+        // Only uncompressed assets can be mapped, see noCompress in build.gradle.
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(name);
+             FileInputStream is = descriptor.createInputStream();
+             FileChannel channel = is.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, descriptor.getStartOffset(), descriptor.getDeclaredLength());
+        }
+    }
+}
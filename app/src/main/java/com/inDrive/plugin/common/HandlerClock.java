@@ -0,0 +1,24 @@
+package com.inDrive.plugin.common;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.inDrive.plugin.dialogue.Clock;
+
+public class HandlerClock implements Clock {
+    private Handler handler;
+
+    public HandlerClock() {
+        handler = new Handler(Looper.getMainLooper());
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void schedule(Runnable task, long delayMillis) {
+        handler.postDelayed(task, delayMillis);
+    }
+}
@@ -19,6 +19,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SpeechToTextProvider {
     public static final String STT_INFERRED_TEXT = "STT_INFERRED_TEXT";
+    public static final String STT_HYPOTHESES = "STT_HYPOTHESES";
+    public static final String STT_CONFIDENCE_SCORES = "STT_CONFIDENCE_SCORES";
+
+    private static final int MAX_HYPOTHESES = 5;
 
     private static final String TAG = "SpeechToTextProvider";
 
@@ -39,6 +43,7 @@ public class SpeechToTextProvider {
         recognizerIntent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
         recognizerIntent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
         recognizerIntent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, Locale.getDefault());
+        recognizerIntent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, MAX_HYPOTHESES);
 
         speechRecognizer.setRecognitionListener(new SpeechRecognitionListener());
 
@@ -143,11 +148,15 @@ public class SpeechToTextProvider {
 
         @Override
         public void onResults(Bundle results) {
-            String inferredText = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION).get(0);
-            Log.d(TAG, String.format("Received voice input from user: %s", inferredText));
+            ArrayList<String> hypotheses = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+            float[] confidenceScores = results.getFloatArray(SpeechRecognizer.CONFIDENCE_SCORES);
+            String inferredText = hypotheses.get(0);
+            Log.d(TAG, String.format("Received voice input from user: %s (%d hypotheses)", inferredText, hypotheses.size()));
 
             Map<String, Object> map = new HashMap<>();
             map.put(SpeechToTextProvider.STT_INFERRED_TEXT, inferredText);
+            map.put(SpeechToTextProvider.STT_HYPOTHESES, hypotheses);
+            map.put(SpeechToTextProvider.STT_CONFIDENCE_SCORES, confidenceScores);
             for (ActionListenerCallback callback : actionListenerCallbacks)
                 callback.onActionCompleted(map);
         }
@@ -0,0 +1,189 @@
+package com.inDrive.plugin.common;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs app initialization as a graph of named tasks. A task starts as soon as the tasks it
+ * depends on are done, on the shared executor or on the main thread, so independent work runs in
+ * parallel instead of one piece after another in {@code onCreate}. Tasks that are not needed for
+ * the first screen are held back until the first frame has been drawn.
+ * <p>
+ * Each task is a trace section, so it shows in a system trace, and once all are done the start
+ * offset, wait and duration of every task is logged. A task that fails is logged and the tasks
+ * depending on it do not run; {@link FailureListener}s hear of both, so the app can tell the user
+ * instead of waiting for something that never comes.
+ */
+public class StartupOrchestrator {
+    private static final String TAG = "StartupOrchestrator";
+
+    private Executor executor;
+    private Executor mainExecutor;
+    private Map<String, Task> tasks = new LinkedHashMap<>();
+    private List<FailureListener> failureListeners = new CopyOnWriteArrayList<>();
+    private CompletableFuture<Void> firstFrame = new CompletableFuture<>();
+    private long startedAt;
+
+    public StartupOrchestrator(Executor executor) {
+        this.executor = executor;
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        this.mainExecutor = mainHandler::post;
+    }
+
+    public StartupOrchestrator add(String name, Runnable work, String... dependencies) {
+        return add(new Task(name, work, executor, false, dependencies));
+    }
+
+    public StartupOrchestrator addOnMainThread(String name, Runnable work, String... dependencies) {
+        return add(new Task(name, work, mainExecutor, false, dependencies));
+    }
+
+    /**
+     * Add a task that is not needed for the first screen; it runs in the background once the
+     * first frame has been drawn.
+     */
+    public StartupOrchestrator addAfterFirstFrame(String name, Runnable work, String... dependencies) {
+        return add(new Task(name, work, executor, true, dependencies));
+    }
+
+    /**
+     * Listen for tasks that fail or are skipped as a task they depend on failed. Add before
+     * {@link #start()}.
+     */
+    public StartupOrchestrator addFailureListener(FailureListener listener) {
+        failureListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Start every task. Call on the main thread, in {@code onCreate}.
+     *
+     * @return completes when all tasks have run or been skipped after a failure
+     */
+    public CompletableFuture<Void> start() {
+        startedAt = SystemClock.elapsedRealtime();
+        // The first frame is drawn in the frame after this callback's, so it is done once the
+        // main thread gets to a message posted from here.
+        Choreographer.getInstance().postFrameCallback(frameTimeNanos -> mainExecutor.execute(() -> firstFrame.complete(null)));
+
+        for (Task task : tasks.values())
+            schedule(task);
+
+        List<CompletableFuture<Void>> all = new ArrayList<>(tasks.size());
+        for (Task task : tasks.values())
+            all.add(task.future.handle((result, failure) -> null));
+        return CompletableFuture.allOf(all.toArray(new CompletableFuture[0]))
+                .thenRun(this::logTrace);
+    }
+
+    private StartupOrchestrator add(Task task) {
+        if (tasks.containsKey(task.name))
+            throw new IllegalArgumentException("Duplicate startup task " + task.name);
+        tasks.put(task.name, task);
+        return this;
+    }
+
+    private Task task(String name) {
+        Task task = tasks.get(name);
+        if (task == null)
+            throw new IllegalArgumentException("Unknown startup task " + name);
+        return task;
+    }
+
+    // Tasks are scheduled in the order they were added, so a dependency must be added first.
+    private void schedule(Task task) {
+        List<CompletableFuture<Void>> before = new ArrayList<>();
+        for (String dependency : task.dependencies) {
+            Task other = task(dependency);
+            if (other.future == null)
+                throw new IllegalArgumentException(String.format("Startup task %s depends on %s, which is added after it", task.name, dependency));
+            before.add(other.future);
+        }
+        if (task.isAfterFirstFrame) before.add(firstFrame);
+
+        task.future = CompletableFuture.allOf(before.toArray(new CompletableFuture[0]))
+                .thenRun(() -> task.readyAt = SystemClock.elapsedRealtime())
+                .thenRunAsync(() -> run(task), task.executor);
+        task.future.whenComplete((result, failure) -> {
+            if (failure == null) return;
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            for (FailureListener listener : failureListeners)
+                listener.onTaskFailed(task.name, cause);
+        });
+    }
+
+    private void run(Task task) {
+        task.thread = Thread.currentThread().getName();
+        task.startedAt = SystemClock.elapsedRealtime();
+        Trace.beginSection(task.name);
+        try {
+            task.work.run();
+        } catch (RuntimeException ex) {
+            Log.e(TAG, "Startup task " + task.name + " failed", ex);
+            throw ex;
+        } finally {
+            task.finishedAt = SystemClock.elapsedRealtime();
+            Trace.endSection();
+        }
+    }
+
+    private void logTrace() {
+        List<Task> ran = new ArrayList<>(tasks.values());
+        ran.sort(Comparator.comparingLong(task -> task.startedAt == 0 ? Long.MAX_VALUE : task.startedAt));
+        StringBuilder trace = new StringBuilder("Startup trace (start, wait, duration):");
+        for (Task task : ran) {
+            if (task.startedAt == 0) {
+                trace.append(String.format("%n  %-24s skipped", task.name));
+                continue;
+            }
+            trace.append(String.format("%n  %-24s +%5d ms %5d ms %5d ms  %s", task.name, task.startedAt - startedAt,
+                    task.startedAt - task.readyAt, task.finishedAt - task.startedAt, task.thread));
+        }
+        Log.i(TAG, trace.toString());
+    }
+
+    public interface FailureListener {
+        /**
+         * Called on the thread the task ran on, or on the one that found it cannot run.
+         *
+         * @param cause what the task, or the task it depends on, threw
+         */
+        void onTaskFailed(String task, Throwable cause);
+    }
+
+    private static class Task {
+        private String name;
+        private Runnable work;
+        private Executor executor;
+        private boolean isAfterFirstFrame;
+        private String[] dependencies;
+
+        private CompletableFuture<Void> future;
+        private volatile long readyAt;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        private volatile String thread;
+
+        private Task(String name, Runnable work, Executor executor, boolean isAfterFirstFrame, String[] dependencies) {
+            this.name = name;
+            this.work = work;
+            this.executor = executor;
+            this.isAfterFirstFrame = isAfterFirstFrame;
+            this.dependencies = dependencies;
+        }
+    }
+}
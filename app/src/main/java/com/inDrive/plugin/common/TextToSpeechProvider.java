@@ -17,6 +17,7 @@ import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 public class TextToSpeechProvider implements TextToSpeech.OnInitListener {
     private static final String TAG = "TextToSpeechProvider";
@@ -26,6 +27,7 @@ public class TextToSpeechProvider implements TextToSpeech.OnInitListener {
     private TextToSpeech textToSpeech;
     private Context context;
     private AtomicBoolean isOkayToSpeak;
+    private volatile boolean isInitialized;
     private ExecutorService executorService;
     private SpeechToTextProvider speechToTextProvider;
     private List<ActionListenerCallback> actionListenerCallbacks;
@@ -64,8 +66,13 @@ public class TextToSpeechProvider implements TextToSpeech.OnInitListener {
         actionListenerCallbacks.add(callback);
     }
 
+    /**
+     * Called on the main thread once speech is ready, right away if it is already. Register on
+     * the main thread.
+     */
     public void registerOnInitListenerCallback(OnInitListenerCallback callback) {
         onInitListenerCallbacks.add(callback);
+        if (isInitialized) callback.onInitialized();
     }
 
     @Override
@@ -88,6 +95,7 @@ public class TextToSpeechProvider implements TextToSpeech.OnInitListener {
         textToSpeech.setOnUtteranceProgressListener(new UtteranceListenerCallback());
 
         isOkayToSpeak.set(true);
+        isInitialized = true;
         Log.i(TAG, "Successfully initialized text to speech with locale en-US.");
 
         for (OnInitListenerCallback callback : onInitListenerCallbacks) {
@@ -96,14 +104,30 @@ public class TextToSpeechProvider implements TextToSpeech.OnInitListener {
     }
 
     public void speak(String text) {
+        speak(() -> text);
+    }
+
+    /**
+     * Speak the text {@code next} supplies once speech is possible, i.e. not while listening, so
+     * the caller picks what to say as late as it can. Nothing is spoken if it supplies null.
+     */
+    public void speak(Supplier<String> next) {
         executorService.submit(() -> {
+            String text = null;
             try {
                 while (!isOkayToSpeak.get()) Thread.sleep(100);
 
+                text = next.get();
+                if (text == null) return;
+
                 for (ActionListenerCallback callback : actionListenerCallbacks)
                     callback.onActionStarted();
 
-                textToSpeech.speak(text, TextToSpeech.QUEUE_ADD, null, "InCode TTS");
+                if (textToSpeech.speak(text, TextToSpeech.QUEUE_ADD, null, "InCode TTS") == TextToSpeech.ERROR) {
+                    // No utterance callback follows a rejected request.
+                    for (ActionListenerCallback callback : actionListenerCallbacks)
+                        callback.onActionFailed();
+                }
             } catch (Exception ex) {
                 Log.e(TAG, String.format("Error while converting text (%s) to speech.", text), ex);
             }
@@ -3,7 +3,16 @@ package com.inDrive.plugin.common.httpclient;
 import android.util.Log;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -18,9 +27,15 @@ public class HttpClient {
 
     private static final MediaType MEDIA_TYPE_JSON = MediaType.get("application/json; charset=utf-8");
     private static final String TAG = "HttpClient";
+    // Requests of a batch in flight at once; they share the pooled connections to the host.
+    public static final int MAX_REQUESTS_PER_HOST = 4;
 
     private HttpClient() {
-        okHttpClient = new OkHttpClient();
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        okHttpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .build();
     }
 
     public static HttpClient getInstance() {
@@ -56,6 +71,74 @@ public class HttpClient {
         return null;
     }
 
+    /**
+     * Send HTTP GET requests to all the urls concurrently and wait for all of them. Repeated
+     * urls are requested once.
+     *
+     * @return the response body for each url in the same order, null where the request failed
+     */
+    public List<String> getAll(List<String> urls) {
+        Map<String, String> bodies = new LinkedHashMap<>();
+        for (String url : urls)
+            bodies.put(url, null);
+
+        List<String> distinctUrls = new ArrayList<>(bodies.keySet());
+        String[] results = new String[distinctUrls.size()];
+        CountDownLatch done = new CountDownLatch(distinctUrls.size());
+        Log.i(TAG, String.format("Initiating %d HTTP GET requests", distinctUrls.size()));
+        for (int i = 0; i < distinctUrls.size(); i++) {
+            int index = i;
+            String url = distinctUrls.get(i);
+            Request request = new Request.Builder()
+                    .url(url)
+                    .get()
+                    .build();
+            okHttpClient.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try (Response closeable = response) {
+                        if (response.isSuccessful())
+                            results[index] = response.body().string();
+                        else
+                            Log.w(
+                                    TAG,
+                                    String.format(
+                                            "HTTP GET request failed with status %d and reason %s. URL: %s",
+                                            response.code(),
+                                            response.message(),
+                                            url
+                                    )
+                            );
+                    } catch (IOException ex) {
+                        Log.e(TAG, String.format("Exception while reading HTTP GET response from url: %s", url));
+                    } finally {
+                        done.countDown();
+                    }
+                }
+
+                @Override
+                public void onFailure(Call call, IOException ex) {
+                    Log.e(TAG, String.format("Exception while sending HTTP GET request to url: %s", url));
+                    done.countDown();
+                }
+            });
+        }
+
+        try {
+            done.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return Arrays.asList(new String[urls.size()]);
+        }
+
+        for (int i = 0; i < distinctUrls.size(); i++)
+            bodies.put(distinctUrls.get(i), results[i]);
+        List<String> responses = new ArrayList<>(urls.size());
+        for (String url : urls)
+            responses.add(bodies.get(url));
+        return responses;
+    }
+
     public String post(String url, String requestBody) {
         RequestBody body = RequestBody.create(requestBody, MEDIA_TYPE_JSON);
         Request request = new Request.Builder()
@@ -7,23 +7,28 @@ import android.util.Log;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
+import com.inDrive.plugin.dialogue.Geocoder;
+import com.inDrive.plugin.dialogue.Router;
+import com.inDrive.plugin.dispatch.EtaProvider;
 import com.inDrive.plugin.model.Location;
 import com.inDrive.plugin.model.LocationCoordinate;
+import com.inDrive.plugin.model.Route;
 import com.inDrive.plugin.navigation.graphhopper.GraphhopperClient;
 import com.inDrive.plugin.navigation.graphhopper.response.direction.DirectionResponse;
 import com.inDrive.plugin.navigation.graphhopper.response.geocode.Geocode;
 import com.inDrive.plugin.navigation.graphhopper.response.geocode.GeocodeResponse;
+import com.inDrive.plugin.navigation.graphhopper.response.matrix.MatrixResponse;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import opennlp.tools.util.StringUtil;
 
-public class NavigationProvider {
+public class NavigationProvider implements Geocoder, Router, EtaProvider {
     private static final String TAG = "NavigationProvider";
 
     private FusedLocationProviderClient fusedLocationProviderClient;
@@ -36,6 +41,7 @@ public class NavigationProvider {
         fusedLocationProviderClient = new FusedLocationProviderClient(context);
     }
 
+    @Override
     @SuppressLint("MissingPermission")
     public Optional<Location> getCurrentLocation() {
         try {
@@ -52,51 +58,33 @@ public class NavigationProvider {
         return Optional.empty();
     }
 
+    @Override
     public Optional<Location> getLocation(String place) {
-        Optional<GeocodeResponse> geocodeResponseOptional = graphhopperClient.getGeocode(place);
-        if (!geocodeResponseOptional.isPresent())
-            return Optional.empty();
-
-        GeocodeResponse geocodeResponse = geocodeResponseOptional.get();
-
-        Geocode geoCode = geocodeResponse.getHits().get(0);
-        Location location =  new Location();
-        if (!StringUtil.isEmpty(geoCode.getName()))
-            location.setLocationName(geoCode.getName());
-        else
-            location.setLocationName(geoCode.getStreet());
-        location.setLocationCoordinates(new LocationCoordinate(geoCode.getPoint().getLatitude(), geoCode.getPoint().getLongitude()));
-
-        return Optional.of(location);
+        return graphhopperClient.getGeocode(place).flatMap(NavigationProvider::toLocation);
     }
 
+    @Override
     public Optional<Location> getLocation(double latitude, double longitude) {
-        Optional<GeocodeResponse> geocodeResponseOptional = graphhopperClient.getGeocode(latitude, longitude);
-        if (!geocodeResponseOptional.isPresent())
-            return Optional.empty();
+        return graphhopperClient.getGeocode(latitude, longitude).flatMap(NavigationProvider::toLocation);
+    }
 
-        GeocodeResponse geocodeResponse = geocodeResponseOptional.get();
-        if(geocodeResponse.getHits().isEmpty()) {
-            return null;
-        }
-        Geocode geoCode = geocodeResponse.getHits().get(0);
-        Location location =  new Location();
-        if (!StringUtil.isEmpty(geoCode.getName()))
-            location.setLocationName(geoCode.getName());
-        else
-            location.setLocationName(geoCode.getStreet());
-        location.setLocationCoordinates(new LocationCoordinate(geoCode.getPoint().getLatitude(), geoCode.getPoint().getLongitude()));
+    @Override
+    public List<Optional<Location>> getLocations(List<String> places) {
+        return toLocations(graphhopperClient.getGeocodes(places));
+    }
 
-        return Optional.of(location);
+    @Override
+    public List<Optional<Location>> getLocationsAt(List<LocationCoordinate> points) {
+        return toLocations(graphhopperClient.getReverseGeocodes(points));
     }
 
+    @Override
     public Optional<DirectionResponse> getDirections(String from, String to) {
         try {
-            Future<Optional<Location>> fromFuture = executorService.submit(() -> getLocation(from));
-            Future<Optional<Location>> toFuture = executorService.submit(() -> getLocation(to));
-
-            Optional<Location> fromLocationOptional = fromFuture.get();
-            Optional<Location> toLocationOptional = toFuture.get();
+            // Both ends are geocoded in one batch.
+            List<Optional<Location>> ends = getLocations(List.of(from, to));
+            Optional<Location> fromLocationOptional = ends.get(0);
+            Optional<Location> toLocationOptional = ends.get(1);
 
             if (!fromLocationOptional.isPresent() || !toLocationOptional.isPresent())
                 return Optional.empty();
@@ -121,8 +109,80 @@ public class NavigationProvider {
         return Optional.empty();
     }
 
+    @Override
+    public Optional<DirectionResponse> getDirections(LocationCoordinate from, LocationCoordinate to) {
+        return graphhopperClient.getDirections(List.of(toPoint(from), toPoint(to)));
+    }
+
+    @Override
+    public Optional<long[]> getTravelTimes(List<LocationCoordinate> origins, LocationCoordinate destination) {
+        List<List<Double>> points = new ArrayList<>(origins.size());
+        for (LocationCoordinate origin : origins)
+            points.add(toPoint(origin));
+
+        Optional<MatrixResponse> response = graphhopperClient.getMatrix(points, List.of(toPoint(destination)));
+        if (!response.isPresent() || response.get().getTimes() == null || response.get().getTimes().size() != origins.size())
+            return Optional.empty();
+
+        long[] times = new long[origins.size()];
+        for (int i = 0; i < times.length; i++) {
+            List<Double> row = response.get().getTimes().get(i);
+            Double seconds = row == null || row.isEmpty() ? null : row.get(0);
+            times[i] = seconds == null ? -1 : Math.round(seconds * 1000);
+        }
+        return Optional.of(times);
+    }
+
+    @Override
+    public Optional<Route> getRoute(List<Location> stops) {
+        try {
+            List<List<Double>> points = new ArrayList<>(stops.size());
+            for (Location stop : stops)
+                points.add(toPoint(stop.getLocationCoordinates()));
+
+            Optional<DirectionResponse> response = graphhopperClient.getDirections(points, true);
+            if (!response.isPresent() || response.get().getPaths() == null || response.get().getPaths().isEmpty())
+                return Optional.empty();
+            return Optional.of(Route.fromPath(stops, response.get().getPaths().get(0)));
+        } catch (Exception ex) {
+            Log.d(
+                    TAG,
+                    String.format("Error fetching route through %s", stops),
+                    ex
+            );
+        }
+
+        return Optional.empty();
+    }
+
     public void checkNavigation() {
         // TODO: Handle navigation
         //fusedLocationProviderClient.get
     }
+
+    private static List<Double> toPoint(LocationCoordinate coordinate) {
+        return List.of(coordinate.getLongitude(), coordinate.getLatitude());
+    }
+
+    private static List<Optional<Location>> toLocations(List<Optional<GeocodeResponse>> geocodeResponses) {
+        List<Optional<Location>> locations = new ArrayList<>(geocodeResponses.size());
+        for (Optional<GeocodeResponse> geocodeResponse : geocodeResponses)
+            locations.add(geocodeResponse.flatMap(NavigationProvider::toLocation));
+        return locations;
+    }
+
+    private static Optional<Location> toLocation(GeocodeResponse geocodeResponse) {
+        if (geocodeResponse.getHits() == null || geocodeResponse.getHits().isEmpty())
+            return Optional.empty();
+
+        Geocode geoCode = geocodeResponse.getHits().get(0);
+        Location location =  new Location();
+        if (!StringUtil.isEmpty(geoCode.getName()))
+            location.setLocationName(geoCode.getName());
+        else
+            location.setLocationName(geoCode.getStreet());
+        location.setLocationCoordinates(new LocationCoordinate(geoCode.getPoint().getLatitude(), geoCode.getPoint().getLongitude()));
+
+        return Optional.of(location);
+    }
 }
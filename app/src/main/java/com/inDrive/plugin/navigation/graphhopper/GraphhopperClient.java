@@ -4,10 +4,13 @@ import android.util.Log;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.inDrive.plugin.common.httpclient.HttpClient;
+import com.inDrive.plugin.model.LocationCoordinate;
 import com.inDrive.plugin.navigation.graphhopper.request.DirectionRequest;
 import com.inDrive.plugin.navigation.graphhopper.request.GeocodeRequest;
+import com.inDrive.plugin.navigation.graphhopper.request.MatrixRequest;
 import com.inDrive.plugin.navigation.graphhopper.response.direction.DirectionResponse;
 import com.inDrive.plugin.navigation.graphhopper.response.geocode.GeocodeResponse;
+import com.inDrive.plugin.navigation.graphhopper.response.matrix.MatrixResponse;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -32,7 +35,8 @@ public class GraphhopperClient {
 
     private GraphhopperClient() {
         httpClient = HttpClient.getInstance();
-        executorService = Executors.newSingleThreadExecutor();
+        // Route requests of a dispatch fallback run side by side, as many as OkHttp sends at once.
+        executorService = Executors.newFixedThreadPool(HttpClient.MAX_REQUESTS_PER_HOST);
         objectMapper = new ObjectMapper();
     }
 
@@ -41,8 +45,18 @@ public class GraphhopperClient {
     }
 
     public Optional<DirectionResponse> getDirections(List<List<Double>> locations) {
+        return getDirections(locations, false);
+    }
+
+    /**
+     * Route through all locations in order with one request.
+     *
+     * @param locations [longitude, latitude] of two or more points
+     * @param instructions whether to return turn instructions, which mark where each leg ends
+     */
+    public Optional<DirectionResponse> getDirections(List<List<Double>> locations, boolean instructions) {
         String url = this.getUrl("route");
-        DirectionRequest request = getDirectionRequest(locations);
+        DirectionRequest request = getDirectionRequest(locations, instructions);
         try {
             String body = objectMapper.writeValueAsString(request);
             Future<DirectionResponse> resultFuture = executorService.submit(new Callable<DirectionResponse>() {
@@ -60,6 +74,36 @@ public class GraphhopperClient {
         return Optional.empty();
     }
 
+    /**
+     * Travel times from every origin to every destination with one request.
+     *
+     * @param origins [longitude, latitude] of each origin
+     * @param destinations [longitude, latitude] of each destination
+     */
+    public Optional<MatrixResponse> getMatrix(List<List<Double>> origins, List<List<Double>> destinations) {
+        String url = this.getUrl("matrix");
+        MatrixRequest request = new MatrixRequest();
+        request.setFromPoints(origins);
+        request.setToPoints(destinations);
+        request.setOutArrays(List.of("times"));
+        request.setVehicle("car");
+        try {
+            String body = objectMapper.writeValueAsString(request);
+            Future<MatrixResponse> resultFuture = executorService.submit(new Callable<MatrixResponse>() {
+                @Override
+                public MatrixResponse call() throws Exception {
+                    String responseJson = httpClient.post(url, body);
+                    return objectMapper.readValue(responseJson, MatrixResponse.class);
+                }
+            });
+            return Optional.of(resultFuture.get());
+        } catch (Exception ex) {
+            Log.e(TAG, ex.toString());
+        }
+
+        return Optional.empty();
+    }
+
     public Optional<GeocodeResponse> getGeocode(String place) {
         String url = String.format(
                 "%s&%s",
@@ -112,21 +156,63 @@ public class GraphhopperClient {
         return Optional.empty();
     }
 
+    /**
+     * Geocode all places concurrently, see {@link HttpClient#getAll(List)}.
+     *
+     * @return the response for each place, in the same order
+     */
+    public List<Optional<GeocodeResponse>> getGeocodes(List<String> places) {
+        List<String> urls = new ArrayList<>(places.size());
+        for (String place : places)
+            urls.add(String.format("%s&%s", this.getUrl("geocode"), this.getGeocodeRequest(place)));
+        return getGeocodeResponses(urls);
+    }
+
+    /**
+     * Reverse geocode all points concurrently, see {@link HttpClient#getAll(List)}.
+     *
+     * @return the response for each point, in the same order
+     */
+    public List<Optional<GeocodeResponse>> getReverseGeocodes(List<LocationCoordinate> points) {
+        List<String> urls = new ArrayList<>(points.size());
+        for (LocationCoordinate point : points)
+            urls.add(String.format("%s&%s", this.getUrl("geocode"),
+                    this.getGeocodeRequest(point.getLatitude(), point.getLongitude())));
+        return getGeocodeResponses(urls);
+    }
+
+    private List<Optional<GeocodeResponse>> getGeocodeResponses(List<String> urls) {
+        List<Optional<GeocodeResponse>> results = new ArrayList<>(urls.size());
+        for (String responseJson : httpClient.getAll(urls)) {
+            try {
+                results.add(responseJson == null
+                        ? Optional.empty()
+                        : Optional.of(objectMapper.readValue(responseJson, GeocodeResponse.class)));
+            } catch (Exception ex) {
+                Log.e(TAG, ex.toString());
+                results.add(Optional.empty());
+            }
+        }
+        return results;
+    }
+
     private String getUrl(String api) {
         return String.format("%s/%s?key=%s", BASE_URL, api, API_KEY);
     }
 
-    private DirectionRequest getDirectionRequest(List<List<Double>> locations) {
+    private DirectionRequest getDirectionRequest(List<List<Double>> locations, boolean instructions) {
         DirectionRequest request = new DirectionRequest();
         request.setPoints(locations);
         request.setSnapPreventions(List.of("motorway", "ferry", "tunnel"));
         request.setDetails(List.of("road_class", "surface"));
         request.setVehicle("bike");
         request.setLocale("en");
-        request.setInstructions(false);
+        request.setInstructions(instructions);
         request.setCalcPoints(true);
         request.setPointsEncoded(false);
-        request.setAlgorithm("alternative_route");
+        // Alternative routes are only calculated between two points.
+        if (locations.size() == 2)
+            request.setAlgorithm("alternative_route");
         return request;
     }
 
@@ -0,0 +1,26 @@
+package com.inDrive.plugin.navigation.graphhopper.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+// TODO: Refer https://docs.graphhopper.com/#operation/postMatrix for more request fields
+@Getter
+@Setter
+@ToString
+public class MatrixRequest {
+    @JsonProperty("from_points")
+    private List<List<Double>> fromPoints;
+
+    @JsonProperty("to_points")
+    private List<List<Double>> toPoints;
+
+    @JsonProperty("out_arrays")
+    private List<String> outArrays;
+
+    private String vehicle;
+}
@@ -0,0 +1,70 @@
+package com.inDrive.plugin.ui;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Hands items posted from any thread to a consumer on the main thread, once per frame. Items
+ * posted between two frames are delivered together, in the order they were posted, at the start
+ * of the next frame, so a burst of updates costs one layout pass and the consumer is the only
+ * code that touches the UI state it owns.
+ */
+public class FrameBatcher<T> {
+    private Consumer<List<T>> consumer;
+
+    private Queue<T> pending = new ConcurrentLinkedQueue<>();
+    private AtomicBoolean isScheduled = new AtomicBoolean();
+    private Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Choreographer.FrameCallback frameCallback = frameTimeNanos -> deliver();
+    private Runnable scheduleFrame = () -> Choreographer.getInstance().postFrameCallback(frameCallback);
+
+    private long batches;
+    private long items;
+
+    public FrameBatcher(Consumer<List<T>> consumer) {
+        this.consumer = consumer;
+    }
+
+    public void post(T item) {
+        pending.add(item);
+        if (!isScheduled.compareAndSet(false, true)) return;
+
+        if (Looper.myLooper() == Looper.getMainLooper())
+            scheduleFrame.run();
+        else
+            mainHandler.post(scheduleFrame);
+    }
+
+    /**
+     * @return batches delivered so far; with {@link #getItems()}, how well bursts are coalesced
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getItems() {
+        return items;
+    }
+
+    private void deliver() {
+        // Cleared before draining, so an item posted from here on schedules the next frame.
+        isScheduled.set(false);
+        List<T> batch = new ArrayList<>();
+        T item;
+        while ((item = pending.poll()) != null)
+            batch.add(item);
+        if (batch.isEmpty()) return;
+
+        batches++;
+        items += batch.size();
+        consumer.accept(batch);
+    }
+}
@@ -0,0 +1,165 @@
+package com.inDrive.plugin.ui.chat;
+
+import android.util.Log;
+
+import com.inDrive.plugin.ui.chat.model.Message;
+import com.inDrive.plugin.ui.chat.model.Sender;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Chat messages of all sessions, kept in an append-only file so the chat shows only a window of
+ * recent messages in memory and pages older ones in as the rider scrolls up. Each record carries
+ * its length at both ends, {@code <length> <sender> <text> <length>}, so pages are read backwards
+ * from a file position without an index in memory. Once the file grows past
+ * {@link #MAX_FILE_BYTES} it is cut down to the newest half when opened.
+ * <p>
+ * Reads and writes hit the disk; call it off the main thread.
+ */
+public class ChatHistory {
+    private static final String TAG = "ChatHistory";
+    public static final long MAX_FILE_BYTES = 1024 * 1024;
+
+    private static final int LENGTH_BYTES = 4;
+
+    private File file;
+    private FileChannel channel;
+    // File position of the oldest message handed out; older ones are still on disk only.
+    private long oldestLoaded;
+
+    public ChatHistory(File file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long end = lastCompleteRecordEnd();
+        if (end < channel.size()) {
+            Log.w(TAG, "Dropping " + (channel.size() - end) + " bytes of a torn message");
+            channel.truncate(end);
+        }
+        if (end > MAX_FILE_BYTES)
+            compact();
+        oldestLoaded = channel.size();
+    }
+
+    public synchronized void append(Message message) throws IOException {
+        byte[] text = message.getText().getBytes(StandardCharsets.UTF_8);
+        int length = 1 + text.length;
+        ByteBuffer record = ByteBuffer.allocate(2 * LENGTH_BYTES + length);
+        record.putInt(length).put((byte) message.getSender().getValue()).put(text).putInt(length);
+        record.flip();
+        long position = channel.size();
+        while (record.hasRemaining())
+            position += channel.write(record, position);
+    }
+
+    /**
+     * @return up to {@code count} messages older than the ones handed out so far, oldest first
+     */
+    public synchronized List<Message> loadOlder(int count) throws IOException {
+        List<Message> page = new ArrayList<>(count);
+        ByteBuffer length = ByteBuffer.allocate(LENGTH_BYTES);
+        while (page.size() < count && oldestLoaded > 0) {
+            length.clear();
+            channel.read(length, oldestLoaded - LENGTH_BYTES);
+            int payloadLength = length.getInt(0);
+            long start = oldestLoaded - 2 * LENGTH_BYTES - payloadLength;
+
+            ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+            channel.read(payload, start + LENGTH_BYTES);
+            page.add(toMessage(payload.array()));
+            oldestLoaded = start;
+        }
+        Collections.reverse(page);
+        return page;
+    }
+
+    /**
+     * The {@code count} oldest messages handed out were dropped from memory; hand them out again
+     * from {@link #loadOlder(int)}.
+     */
+    public synchronized void forget(int count) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(LENGTH_BYTES);
+        for (int i = 0; i < count && oldestLoaded < channel.size(); i++) {
+            length.clear();
+            channel.read(length, oldestLoaded);
+            oldestLoaded += 2 * LENGTH_BYTES + length.getInt(0);
+        }
+    }
+
+    public synchronized boolean hasOlder() {
+        return oldestLoaded > 0;
+    }
+
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private static Message toMessage(byte[] payload) {
+        Sender sender = payload[0] == Sender.USER.getValue() ? Sender.USER : Sender.SYSTEM;
+        return new Message(new String(payload, 1, payload.length - 1, StandardCharsets.UTF_8), sender);
+    }
+
+    /**
+     * @return the end of the last record whose leading and trailing lengths agree
+     */
+    private long lastCompleteRecordEnd() throws IOException {
+        long size = channel.size();
+        if (size < 2 * LENGTH_BYTES) return 0;
+
+        ByteBuffer length = ByteBuffer.allocate(LENGTH_BYTES);
+        channel.read(length, size - LENGTH_BYTES);
+        int trailing = length.getInt(0);
+        long start = size - 2 * LENGTH_BYTES - trailing;
+        if (trailing > 0 && start >= 0) {
+            length.clear();
+            channel.read(length, start);
+            if (length.getInt(0) == trailing) return size;
+        }
+
+        // The last append was torn; walk the records from the start to find where it began.
+        long position = 0;
+        while (position + LENGTH_BYTES <= size) {
+            length.clear();
+            channel.read(length, position);
+            long next = position + 2 * LENGTH_BYTES + length.getInt(0);
+            if (length.getInt(0) <= 0 || next > size) break;
+            position = next;
+        }
+        return position;
+    }
+
+    private void compact() throws IOException {
+        // Keep the newest records that fit in half the limit.
+        long size = channel.size();
+        long keepFrom = size;
+        ByteBuffer length = ByteBuffer.allocate(LENGTH_BYTES);
+        while (keepFrom > 0) {
+            length.clear();
+            channel.read(length, keepFrom - LENGTH_BYTES);
+            long start = keepFrom - 2 * LENGTH_BYTES - length.getInt(0);
+            if (size - start > MAX_FILE_BYTES / 2) break;
+            keepFrom = start;
+        }
+
+        File compacted = new File(file.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(compacted.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = keepFrom;
+            while (position < size)
+                position += channel.transferTo(position, size - position, out);
+            out.force(false);
+        }
+        channel.close();
+        Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+}
@@ -1,6 +1,7 @@
 package com.inDrive.plugin.ui.chat;
 
 import android.content.Context;
+import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
@@ -12,8 +13,15 @@ import com.inDrive.plugin.ui.chat.model.Message;
 import com.inDrive.plugin.ui.chat.model.Sender;
 import com.inDrive.plugin.voice.R;
 
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Chat messages of the conversation. New messages are announced with positional inserts, so only
+ * the new rows are bound and the rest of the list is left alone. Older messages paged in from
+ * {@link ChatHistory} are inserted at the top, and the oldest rows are dropped again with
+ * {@link #removeOldestMessages(int)} to keep memory bounded. Items have stable ids.
+ */
 public class MessageListAdapter extends RecyclerView.Adapter {
     private Context context;
 
@@ -22,6 +30,7 @@ public class MessageListAdapter extends RecyclerView.Adapter {
     public MessageListAdapter(Context context, List<Message> messages) {
         this.context = context;
         this.messages = messages;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -59,18 +68,76 @@ public class MessageListAdapter extends RecyclerView.Adapter {
         return this.messages.size();
     }
 
+    @Override
+    public long getItemId(int position) {
+        return this.messages.get(position).getId();
+    }
+
     @Override
     public int getItemViewType(int position) {
         Message message = this.messages.get(position);
         return message.getSender().getValue();
     }
 
-    public void addMessage(Message message) {
-        if (message == null || message.getText() == null || message.getText().length() == 0) return;
+    /**
+     * @return false if the message has no text and is not shown
+     */
+    @MainThread
+    public boolean addMessage(Message message) {
+        if (!isShown(message)) return false;
 
         messages.add(message);
-        //new Thread(() -> notifyDataSetChanged());
-        notifyDataSetChanged();
+        notifyItemInserted(messages.size() - 1);
+        return true;
+    }
+
+    /**
+     * Append several messages with one range update.
+     *
+     * @return the messages that are shown, i.e. have text
+     */
+    @MainThread
+    public List<Message> addMessages(List<Message> newMessages) {
+        int start = messages.size();
+        for (Message message : newMessages) {
+            if (!isShown(message)) continue;
+            messages.add(message);
+        }
+        List<Message> added = new ArrayList<>(messages.subList(start, messages.size()));
+        if (added.isEmpty()) return added;
+        notifyItemRangeInserted(start, added.size());
+        return added;
+    }
+
+    /**
+     * Insert a page of messages older than the ones shown above them, with one range update.
+     */
+    @MainThread
+    public void addOlderMessages(List<Message> olderMessages) {
+        List<Message> page = new ArrayList<>(olderMessages.size());
+        for (Message message : olderMessages) {
+            if (isShown(message)) page.add(message);
+        }
+        if (page.isEmpty()) return;
+
+        messages.addAll(0, page);
+        notifyItemRangeInserted(0, page.size());
+    }
+
+    /**
+     * Drop the {@code count} oldest messages, e.g. once they have scrolled out of a bounded window.
+     */
+    @MainThread
+    public void removeOldestMessages(int count) {
+        count = Math.min(count, messages.size());
+        if (count <= 0) return;
+
+        messages.subList(0, count).clear();
+        notifyItemRangeRemoved(0, count);
+    }
+
+    private static boolean isShown(Message message) {
+        return message != null && message.getText() != null && message.getText().length() != 0;
     }
 
     private class UserMessageHolder extends RecyclerView.ViewHolder {
@@ -1,6 +1,7 @@
 package com.inDrive.plugin.ui.chat.model;
 
-import lombok.AllArgsConstructor;
+import java.util.concurrent.atomic.AtomicLong;
+
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -9,10 +10,19 @@ import lombok.ToString;
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 @ToString
 public class Message {
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    // Stable item id for the chat list, unique within the process.
+    private final long id = NEXT_ID.getAndIncrement();
+
     private String text;
 
     private Sender sender;
+
+    public Message(String text, Sender sender) {
+        this.text = text;
+        this.sender = sender;
+    }
 }
@@ -1,33 +1,40 @@
 package com.inDrive.plugin.voice;
 
 import android.Manifest;
-import android.content.BroadcastReceiver;
-import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.support.v4.app.ActivityCompat;
-import android.support.v4.content.LocalBroadcastManager;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.util.Log;
 
+import com.inDrive.plugin.common.AnnouncementScheduler;
 import com.inDrive.plugin.common.callbacks.ActionListenerCallback;
 import com.inDrive.plugin.common.SpeechToTextProvider;
+import com.inDrive.plugin.common.StartupOrchestrator;
 import com.inDrive.plugin.common.TextToSpeechProvider;
 import com.inDrive.plugin.common.callbacks.OnInitListenerCallback;
+import com.inDrive.plugin.dialogue.Announcement;
+import com.inDrive.plugin.event.AnnouncementEvent;
+import com.inDrive.plugin.event.EventBus;
+import com.inDrive.plugin.event.RideEvent;
 import com.inDrive.plugin.model.Passenger;
+import com.inDrive.plugin.ui.FrameBatcher;
+import com.inDrive.plugin.ui.chat.ChatHistory;
 import com.inDrive.plugin.ui.chat.MessageListAdapter;
 import com.inDrive.plugin.ui.chat.model.Message;
 import com.inDrive.plugin.ui.chat.model.Sender;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
     private static final String TAG = "InDriveMainActivity";
@@ -41,17 +48,55 @@ public class MainActivity extends AppCompatActivity {
     };
     private static final int PERMISSION_REQUEST_CODE = 200;
 
+    // Messages kept in memory once the rider is back at the latest one, and messages paged in from
+    // the history file each time they scroll to the top.
+    private static final int MAX_MESSAGES_IN_MEMORY = 100;
+    private static final int HISTORY_PAGE_SIZE = 30;
+    // Ride changes are logged on their own thread; a backlog beyond this is dropped.
+    private static final int TELEMETRY_QUEUE_CAPACITY = 64;
+    private static final int STARTUP_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final String STARTUP_FAILED_TEXT = "Sorry, I could not get ready to book rides. Please restart the app.";
+
     private Chatbot chatbot;
 
     private SpeechToTextProvider speechToTextProvider;
     private TextToSpeechProvider textToSpeechProvider;
+    private AnnouncementScheduler announcementScheduler;
 
     private RecyclerView recyclerView;
     private MessageListAdapter messageListAdapter;
-
-    private boolean hasConvEnded = false;
+    // Speech and chatbot callbacks arrive on their own threads; their messages reach the list
+    // together, once per frame, on the main thread.
+    private FrameBatcher<Message> messageBatcher = new FrameBatcher<>(this::showMessages);
+
+    // Chat history is read and written on its own thread, in the order the messages were shown.
+    private ChatHistory chatHistory;
+    private ExecutorService historyExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-history");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Until the history has been opened, after the first frame.
+    private boolean isLoadingHistory = true;
+    // Messages shown before the history was opened, saved once it is; null after that. Only used
+    // on the history thread.
+    private List<Message> unsavedMessages = new ArrayList<>();
+
+    private ExecutorService telemetryExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ride-telemetry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private List<EventBus.Subscription> subscriptions = new ArrayList<>();
+
+    // Set by chatbot announcements, read by speech recognition callbacks.
+    private volatile boolean hasConvEnded = false;
+    // The greeting goes out while the chatbot is still loading; a reply to the rider waits here
+    // until it has loaded, or is dropped if it never will.
+    private final Object chatbotLock = new Object();
     private boolean hasChatbotInitialized = false;
-    private boolean hasTtsInitialized = false;
+    private boolean hasChatbotFailed = false;
+    private Runnable pendingTurn;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -61,22 +106,67 @@ public class MainActivity extends AppCompatActivity {
 
         checkMissingPermissions();
 
-        LocalBroadcastManager.getInstance(this).registerReceiver(updateFromChatbot,
-                new IntentFilter("TTS_REQ_FROM_CHATBOT"));
-        LocalBroadcastManager.getInstance(this).registerReceiver(finishConversation,
-                new IntentFilter("REACHED_DEST"));
         recyclerView = (RecyclerView) findViewById(R.id.recycler_chat);
         messageListAdapter = new MessageListAdapter(this, new ArrayList<>());
+        // The list fills the screen; new messages need not lay out the whole window again.
+        recyclerView.setHasFixedSize(true);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         recyclerView.setAdapter(messageListAdapter);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy < 0 && !recyclerView.canScrollVertically(-1))
+                    loadOlderMessages();
+            }
+        });
 
         Passenger p = new Passenger("JJ", "123456");
         chatbot = new Chatbot(this, p);
         chatbot.registerOnInitListenerCallback(new ChatbotInitializationListener());
 
-        speechToTextProvider = SpeechToTextProvider.getInstance(this);
-        textToSpeechProvider = TextToSpeechProvider.getInstance(this);
+        ExecutorService startupExecutor = Executors.newFixedThreadPool(STARTUP_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "startup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        StartupOrchestrator startup = new StartupOrchestrator(startupExecutor);
+        startup.add("tts", () -> textToSpeechProvider = TextToSpeechProvider.getInstance(this));
+        // The speech recognizer may only be used from the main thread.
+        startup.addOnMainThread("stt", () -> speechToTextProvider = SpeechToTextProvider.getInstance(this));
+        startup.addOnMainThread("speech", this::connectSpeech, "tts", "stt");
+        chatbot.addStartupTasks(startup);
+        startup.addOnMainThread("ride-recovery", this::announceRecoveredRide, "chatbot", "speech");
+        startup.addAfterFirstFrame("chat-history", this::openChatHistory);
+        startup.addFailureListener(this::onStartupTaskFailed);
+        startup.start().whenComplete((done, failure) -> startupExecutor.shutdown());
+    }
+
+    /**
+     * The rider is told when the chatbot or speech could not be set up, rather than left waiting
+     * for an answer. Other tasks only cost a feature and are just logged.
+     */
+    private void onStartupTaskFailed(String task, Throwable cause) {
+        if (task.equals("chatbot")) {
+            synchronized (chatbotLock) {
+                hasChatbotFailed = true;
+                pendingTurn = null;
+            }
+            tellStartupFailed();
+        } else if (task.equals("speech")) {
+            // Nothing to say it with; the chat still shows it.
+            addMessageToRecyclerView(new Message(STARTUP_FAILED_TEXT, Sender.SYSTEM));
+        }
+    }
+
+    private void tellStartupFailed() {
+        addMessageToRecyclerView(new Message(STARTUP_FAILED_TEXT, Sender.SYSTEM));
+        if (announcementScheduler != null)
+            announcementScheduler.enqueue(Announcement.reply(STARTUP_FAILED_TEXT));
+    }
+
+    private void connectSpeech() {
         textToSpeechProvider.setSpeechToTextProvider(speechToTextProvider);
+        announcementScheduler = new AnnouncementScheduler(textToSpeechProvider);
         speechToTextProvider.setTextToSpeechProvider(textToSpeechProvider);
 
         speechToTextProvider.registerActionListenerCallback(new SpeechToTextActionListener());
@@ -84,28 +174,27 @@ public class MainActivity extends AppCompatActivity {
         TextToSpeechActionListener ttsActionListener = new TextToSpeechActionListener();
         textToSpeechProvider.registerActionListenerCallback(ttsActionListener);
         textToSpeechProvider.registerOnInitListenerCallback(ttsActionListener);
-    }
 
-    private BroadcastReceiver updateFromChatbot = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            // Get extra data included in the Intent
-            String message = intent.getStringExtra("message");
-            addMessageToRecyclerView(new Message(message, Sender.SYSTEM));
-            textToSpeechProvider.speak(message);
-        }
-    };
+        subscribeToChatbot(chatbot.getEventBus());
+    }
 
-    private BroadcastReceiver finishConversation = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            // Get extra data included in the Intent
-            String message = intent.getStringExtra("message");
-            addMessageToRecyclerView(new Message(message, Sender.SYSTEM));
-            textToSpeechProvider.speak(message);
-            hasConvEnded = true;
-        }
-    };
+    /**
+     * Announcements go to the chat and to the speech queue; both hand off to their own threads, so
+     * they are handled on the publishing thread.
+     */
+    private void subscribeToChatbot(EventBus eventBus) {
+        subscriptions.add(eventBus.subscribe(AnnouncementEvent.class, Runnable::run, event -> {
+            addMessageToRecyclerView(new Message(event.getAnnouncement().getText(), Sender.SYSTEM));
+            if (event.isDestinationReached()) hasConvEnded = true;
+        }));
+        subscriptions.add(eventBus.subscribe(AnnouncementEvent.class, Runnable::run,
+                event -> announcementScheduler.enqueue(event.getAnnouncement())));
+        subscriptions.add(eventBus.subscribe(RideEvent.class, telemetryExecutor, TELEMETRY_QUEUE_CAPACITY, event -> {
+            if (event.getPrevious().getRideStatus() != event.getCurrent().getRideStatus())
+                Log.i(TAG, String.format("Ride %s -> %s (version %d)", event.getPrevious().getRideStatus(),
+                        event.getCurrent().getRideStatus(), event.getCurrent().getVersion()));
+        }));
+    }
 
     @Override
     protected  void onStart() {
@@ -133,6 +222,15 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        for (EventBus.Subscription subscription : subscriptions)
+            subscription.close();
+        historyExecutor.execute(() -> {
+            try {
+                if (chatHistory != null) chatHistory.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Could not close chat history", e);
+            }
+        });
         Log.d(TAG, "Activity Destroyed.");
     }
 
@@ -157,28 +255,109 @@ public class MainActivity extends AppCompatActivity {
         runOnUiThread(() -> {
             String text = "Welcome to InDrive. This is a demo of the ride hailing plugin for the blind and visually impaired. Please speak after the beep.";
             addMessageToRecyclerView(new Message(text, Sender.SYSTEM));
-            textToSpeechProvider.speak(text);
+            announcementScheduler.enqueue(Announcement.reply(text));
 
             new Handler().postDelayed(() ->speechToTextProvider.startListening(), 500);
         });
     }
 
+    private void announceRecoveredRide() {
+        chatbot.getRecoveryNotice().ifPresent(text -> {
+            addMessageToRecyclerView(new Message(text, Sender.SYSTEM));
+            announcementScheduler.enqueue(Announcement.reply(text));
+        });
+    }
+
+    /**
+     * Safe to call from any thread; the message is shown with the next frame.
+     */
     private void addMessageToRecyclerView(Message message) {
         if (message == null) return;
 
-        messageListAdapter.addMessage(message);
+        messageBatcher.post(message);
+    }
+
+    private void showMessages(List<Message> batch) {
+        List<Message> shown = messageListAdapter.addMessages(batch);
+        if (shown.isEmpty()) return;
+
+        historyExecutor.execute(() -> {
+            try {
+                if (chatHistory == null) {
+                    if (unsavedMessages != null) unsavedMessages.addAll(shown);
+                    return;
+                }
+                for (Message message : shown)
+                    chatHistory.append(message);
+            } catch (IOException e) {
+                Log.e(TAG, "Could not save messages to chat history", e);
+            }
+        });
         recyclerView.scrollToPosition(messageListAdapter.getItemCount() - 1);
 
+        // Back at the latest message, older ones beyond the window go back to the history file.
+        int overflow = messageListAdapter.getItemCount() - MAX_MESSAGES_IN_MEMORY;
+        if (overflow > 0 && !isLoadingHistory) {
+            messageListAdapter.removeOldestMessages(overflow);
+            historyExecutor.execute(() -> {
+                try {
+                    if (chatHistory != null) chatHistory.forget(overflow);
+                } catch (IOException e) {
+                    Log.e(TAG, "Could not page out chat history", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Show the latest messages of earlier sessions. Messages shown before they are read stay
+     * below them.
+     */
+    private void openChatHistory() {
+        File file = new File(getFilesDir(), "chat.history");
+        historyExecutor.execute(() -> {
+            List<Message> recent = new ArrayList<>();
+            try {
+                chatHistory = new ChatHistory(file);
+                recent = chatHistory.loadOlder(HISTORY_PAGE_SIZE);
+                // Saved after the page is read, so they count as handed out like the rest on screen.
+                for (Message message : unsavedMessages)
+                    chatHistory.append(message);
+            } catch (IOException e) {
+                Log.e(TAG, "Could not open chat history; this session will not be saved", e);
+            }
+            unsavedMessages = null;
+            showOlderMessages(recent);
+        });
+    }
+
+    private void loadOlderMessages() {
+        if (isLoadingHistory) return;
+
+        isLoadingHistory = true;
+        historyExecutor.execute(() -> {
+            List<Message> page = new ArrayList<>();
+            try {
+                if (chatHistory != null && chatHistory.hasOlder())
+                    page = chatHistory.loadOlder(HISTORY_PAGE_SIZE);
+            } catch (IOException e) {
+                Log.e(TAG, "Could not read chat history", e);
+            }
+            showOlderMessages(page);
+        });
+    }
+
+    private void showOlderMessages(List<Message> page) {
+        runOnUiThread(() -> {
+            messageListAdapter.addOlderMessages(page);
+            isLoadingHistory = false;
+        });
     }
 
     private class TextToSpeechActionListener implements ActionListenerCallback, OnInitListenerCallback {
 
         @Override
         public void onInitialized() {
-            hasTtsInitialized = true;
-
-            if (!hasChatbotInitialized) return;
-
             showGreeting();
         }
 
@@ -206,13 +385,33 @@ public class MainActivity extends AppCompatActivity {
 
         @Override
         public void onActionCompleted(Map<String, Object> resultMap) {
-            try {
+            String inferredText = (String) resultMap.get(SpeechToTextProvider.STT_INFERRED_TEXT);
+            List<String> hypotheses = (List<String>) resultMap.get(SpeechToTextProvider.STT_HYPOTHESES);
+            float[] confidenceScores = (float[]) resultMap.get(SpeechToTextProvider.STT_CONFIDENCE_SCORES);
+            addMessageToRecyclerView(new Message(inferredText, Sender.USER));
+
+            Runnable turn = () -> answer(inferredText, hypotheses, confidenceScores);
+            synchronized (chatbotLock) {
+                if (hasChatbotFailed) {
+                    tellStartupFailed();
+                    return;
+                }
+                if (!hasChatbotInitialized) {
+                    pendingTurn = turn;
+                    String text = "One moment please, I am still getting ready.";
+                    addMessageToRecyclerView(new Message(text, Sender.SYSTEM));
+                    announcementScheduler.enqueue(Announcement.reply(text));
+                    return;
+                }
+            }
+            turn.run();
+        }
 
-                String inferredText = (String) resultMap.get(SpeechToTextProvider.STT_INFERRED_TEXT);
-                addMessageToRecyclerView(new Message(inferredText, Sender.USER));
+        private void answer(String inferredText, List<String> hypotheses, float[] confidenceScores) {
+            try {
                 String ans;
                 if(!hasConvEnded) {
-                    ans = chatbot.getResponse(inferredText);
+                    ans = chatbot.getResponse(hypotheses, confidenceScores);
                 }
                 else {
                     if(inferredText.contains("5")) {
@@ -225,7 +424,7 @@ public class MainActivity extends AppCompatActivity {
                 }
                 addMessageToRecyclerView(new Message(ans, Sender.SYSTEM));
 
-                textToSpeechProvider.speak(ans);
+                announcementScheduler.enqueue(Announcement.reply(ans));
                 runOnUiThread(() -> new Handler().postDelayed(() ->speechToTextProvider.startListening(), 500));
 
 
@@ -246,11 +445,13 @@ public class MainActivity extends AppCompatActivity {
 
         @Override
         public void onInitialized() {
-            hasChatbotInitialized = true;
-
-            if (!hasTtsInitialized) return;
-
-            showGreeting();
+            Runnable turn;
+            synchronized (chatbotLock) {
+                hasChatbotInitialized = true;
+                turn = pendingTurn;
+                pendingTurn = null;
+            }
+            if (turn != null) turn.run();
         }
     }
 }
@@ -0,0 +1,116 @@
+package com.inDrive.plugin.benchmarks;
+
+import com.inDrive.plugin.dispatch.DriverIndex;
+import com.inDrive.plugin.dispatch.DriverPosition;
+import com.inDrive.plugin.model.Driver;
+import com.inDrive.plugin.model.LocationCoordinate;
+import com.inDrive.plugin.model.Route;
+import com.inDrive.plugin.model.Vehicle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures driver position updates and nearest driver queries on a {@link DriverIndex} with
+ * drivers spread over about 30 km around Pune. {@code nearestByScan} sorts every driver by
+ * distance, as dispatch did before the index, for comparison. The {@code mixed} group runs three
+ * threads streaming position updates against one thread querying.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DriverIndexBenchmark {
+    private static final double CENTER_LATITUDE = 18.52;
+    private static final double CENTER_LONGITUDE = 73.85;
+    private static final double SPREAD_DEGREES = 0.28;
+    private static final int NEAREST = 10;
+
+    @Param({"10000", "100000"})
+    private int drivers;
+
+    private DriverIndex index;
+    private List<DriverPosition> positions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        index = new DriverIndex();
+        positions = new ArrayList<>(drivers);
+        for (int i = 0; i < drivers; i++) {
+            Driver driver = new Driver("Driver " + i, new Vehicle("MH12 " + i, "Mini", "Celerio"), "", 5);
+            DriverPosition position = new DriverPosition(driver, randomPoint(random));
+            positions.add(position);
+            index.add(position);
+        }
+    }
+
+    @Benchmark
+    public void update() {
+        moveRandomDriver();
+    }
+
+    @Benchmark
+    public List<DriverPosition> nearest() {
+        return index.nearest(randomPoint(ThreadLocalRandom.current()), NEAREST);
+    }
+
+    @Benchmark
+    public List<DriverPosition> nearestByScan() {
+        LocationCoordinate pickup = randomPoint(ThreadLocalRandom.current());
+        List<DriverPosition> all = new ArrayList<>(positions);
+        all.sort(Comparator.comparingDouble(driver -> Route.straightLineDistance(driver.getPosition(), pickup)));
+        return new ArrayList<>(all.subList(0, NEAREST));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public void mixedUpdate() {
+        moveRandomDriver();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public List<DriverPosition> mixedNearest() {
+        return index.nearest(randomPoint(ThreadLocalRandom.current()), NEAREST);
+    }
+
+    // A driver reports a position up to about 100 m from the last one.
+    private void moveRandomDriver() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        DriverPosition driver = positions.get(random.nextInt(positions.size()));
+        LocationCoordinate position = driver.getPosition();
+        index.update(driver, new LocationCoordinate(
+                position.getLatitude() + 0.001 * (random.nextDouble() - 0.5),
+                position.getLongitude() + 0.001 * (random.nextDouble() - 0.5)));
+    }
+
+    private static LocationCoordinate randomPoint(Random random) {
+        return new LocationCoordinate(
+                CENTER_LATITUDE + SPREAD_DEGREES * (random.nextDouble() - 0.5),
+                CENTER_LONGITUDE + SPREAD_DEGREES * (random.nextDouble() - 0.5));
+    }
+}
@@ -0,0 +1,52 @@
+package com.inDrive.plugin.benchmarks;
+
+import com.inDrive.plugin.dialogue.FastPathClassifier;
+import com.inDrive.plugin.dialogue.UserIntent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the fast path classifier on short answers, to compare against
+ * {@link NlpPipelineBenchmark#fullPipeline()} for the same kind of turn. Includes answers that
+ * fall through, since those pay for the fast path on top of the full pipeline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FastPathBenchmark {
+    private static final String[] ANSWERS = {
+            "yes", "No.", "yes please", "nope", "Don't", "stop", "hold on", "five stars",
+            "yeah sure", "no, change the destination to Baner", "okay", "wait"
+    };
+
+    private FastPathClassifier classifier;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        classifier = FastPathClassifier.loadDefault();
+    }
+
+    @Benchmark
+    public Optional<UserIntent> classify() {
+        index = (index + 1) % ANSWERS.length;
+        return classifier.classify(ANSWERS[index]);
+    }
+}
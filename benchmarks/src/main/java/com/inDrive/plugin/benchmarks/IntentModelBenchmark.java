@@ -0,0 +1,81 @@
+package com.inDrive.plugin.benchmarks;
+
+import com.inDrive.plugin.nlp.CompactIntentModel;
+import com.inDrive.plugin.nlp.FileModelLoader;
+import com.inDrive.plugin.nlp.IntentCategorizer;
+import com.inDrive.plugin.nlp.ModelLoader;
+import com.inDrive.plugin.nlp.OpenNlpPipeline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import opennlp.tools.doccat.DoccatModel;
+
+/**
+ * Compares the maxent categorizer trained at startup with the memory-mapped
+ * {@link CompactIntentModel}: time to get a usable model and time to categorize an utterance.
+ * Heap footprint and accuracy are reported by {@link IntentModelComparison}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntentModelBenchmark {
+    private ModelLoader modelLoader;
+    private OpenNlpPipeline maxent;
+    private IntentCategorizer compact;
+
+    private String[][] utterances;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        modelLoader = new FileModelLoader(new File(System.getProperty("nlp.models.dir", ".")));
+        maxent = new OpenNlpPipeline(modelLoader);
+        maxent.trainCategorizerModel();
+        compact = CompactIntentModel.load(modelLoader);
+        utterances = IntentModelComparison.words(Utterances.load());
+    }
+
+    private String[] next() {
+        index = (index + 1) % utterances.length;
+        return utterances[index];
+    }
+
+    @Benchmark
+    public DoccatModel maxentLoad() throws IOException {
+        OpenNlpPipeline pipeline = new OpenNlpPipeline(modelLoader);
+        pipeline.trainCategorizerModel();
+        return pipeline.getCategorizerModel();
+    }
+
+    @Benchmark
+    public IntentCategorizer compactLoad() throws IOException {
+        return CompactIntentModel.load(modelLoader);
+    }
+
+    @Benchmark
+    public double[] maxentCategorize() {
+        return maxent.categorize(next());
+    }
+
+    @Benchmark
+    public double[] compactCategorize() {
+        return compact.categorize(next());
+    }
+}
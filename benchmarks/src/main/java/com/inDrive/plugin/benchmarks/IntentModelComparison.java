@@ -0,0 +1,136 @@
+package com.inDrive.plugin.benchmarks;
+
+import com.inDrive.plugin.nlp.CategorizerUpdater;
+import com.inDrive.plugin.nlp.CompactIntentModel;
+import com.inDrive.plugin.nlp.FileModelLoader;
+import com.inDrive.plugin.nlp.IntentCategorizer;
+import com.inDrive.plugin.nlp.ModelLoader;
+import com.inDrive.plugin.nlp.OpenNlpPipeline;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reports retained heap, load time and holdout accuracy of the maxent categorizer and the
+ * {@link CompactIntentModel}. Heap is measured as the growth after GC while holding
+ * {@link #COPIES} more loaded copies of a model.
+ */
+public class IntentModelComparison {
+    private static final int COPIES = 100;
+
+    public static void main(String[] args) throws IOException {
+        ModelLoader modelLoader = new FileModelLoader(new File(System.getProperty("nlp.models.dir", ".")));
+        List<String[]> holdout = readHoldout(modelLoader);
+        PrintStream console = System.out;
+        // OpenNLP traces training on stdout.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        ModelLoad maxent = () -> {
+            OpenNlpPipeline pipeline = new OpenNlpPipeline(modelLoader);
+            pipeline.trainCategorizerModel();
+            return new IntentCategorizer() {
+                @Override
+                public double[] categorize(String[] lemmas) {
+                    return pipeline.categorize(lemmas);
+                }
+
+                @Override
+                public String[] getCategories() {
+                    String[] categories = new String[pipeline.getNumberOfCategories()];
+                    for (int i = 0; i < categories.length; i++)
+                        categories[i] = pipeline.getCategory(i);
+                    return categories;
+                }
+            };
+        };
+        ModelLoad compact = () -> CompactIntentModel.load(modelLoader);
+
+        String maxentReport = report("maxent", maxent, holdout);
+        String compactReport = report("compact", compact, holdout);
+        System.setOut(console);
+        console.printf("%-8s %12s %12s %10s%n", "model", "heap (KB)", "load (ms)", "accuracy");
+        console.println(maxentReport);
+        console.println(compactReport);
+    }
+
+    private static String report(String name, ModelLoad load, List<String[]> holdout) throws IOException {
+        // Warm up class loading and JIT before timing.
+        load.load();
+        long start = System.nanoTime();
+        IntentCategorizer categorizer = load.load();
+        double loadMillis = (System.nanoTime() - start) / 1e6;
+
+        // The first collections after loading still release one-off garbage, so the footprint is
+        // taken from the growth between holding COPIES and 2 * COPIES models.
+        List<IntentCategorizer> copies = new ArrayList<>();
+        for (int i = 0; i < COPIES; i++)
+            copies.add(load.load());
+        long before = usedHeapAfterGc();
+        for (int i = 0; i < COPIES; i++)
+            copies.add(load.load());
+        long retained = (usedHeapAfterGc() - before) / COPIES;
+
+        int correct = 0;
+        String[] categories = categorizer.getCategories();
+        for (String[] sample : holdout) {
+            double[] outcomes = categorizer.categorize(Arrays.copyOfRange(sample, 1, sample.length));
+            int best = 0;
+            for (int i = 1; i < outcomes.length; i++) {
+                if (outcomes[i] > outcomes[best]) best = i;
+            }
+            if (categories[best].equals(sample[0])) correct++;
+        }
+
+        return String.format("%-8s %12.1f %12.2f %9.1f%%", name, retained / 1024.0, loadMillis,
+                100.0 * correct / holdout.size());
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        // A single request does not reliably collect everything that is unreachable.
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static List<String[]> readHoldout(ModelLoader modelLoader) throws IOException {
+        List<String[]> samples = new ArrayList<>();
+        try (InputStream is = modelLoader.open(CategorizerUpdater.HOLDOUT_DATA)) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] tokens = line.trim().split("\\s+");
+                if (tokens.length >= 2) samples.add(tokens);
+            }
+        }
+        return samples;
+    }
+
+    static String[][] words(String[] utterances) {
+        String[][] words = new String[utterances.length][];
+        for (int i = 0; i < utterances.length; i++)
+            words[i] = utterances[i].toLowerCase().split("\\s+");
+        return words;
+    }
+
+    private interface ModelLoad {
+        IntentCategorizer load() throws IOException;
+    }
+}
@@ -0,0 +1,101 @@
+package com.inDrive.plugin.benchmarks;
+
+import com.inDrive.plugin.nlp.FileModelLoader;
+import com.inDrive.plugin.nlp.OpenNlpPipeline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each stage of the chatbot NLP pipeline over the rider utterance corpus. Every
+ * invocation processes the next utterance of the corpus, so results are averaged over the
+ * whole corpus. Inputs of each stage are precomputed so a stage is measured in isolation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NlpPipelineBenchmark {
+    private OpenNlpPipeline pipeline;
+
+    private String[] sentences;
+    private String[][] tokens;
+    private String[][] posTags;
+    private String[][] lemmas;
+
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pipeline = new OpenNlpPipeline(new FileModelLoader(new File(System.getProperty("nlp.models.dir", "."))));
+        pipeline.loadSentenceModel();
+        pipeline.loadTokenizerModel();
+        pipeline.loadPOSModel();
+        pipeline.loadLemmatizerModel();
+        pipeline.trainCategorizerModel();
+
+        sentences = Utterances.load();
+        tokens = new String[sentences.length][];
+        posTags = new String[sentences.length][];
+        lemmas = new String[sentences.length][];
+        for (int i = 0; i < sentences.length; i++) {
+            tokens[i] = pipeline.tokenize(sentences[i]);
+            posTags[i] = pipeline.tagPOS(tokens[i]);
+            lemmas[i] = pipeline.lemmatize(tokens[i], posTags[i]);
+        }
+    }
+
+    private int next() {
+        index = (index + 1) % sentences.length;
+        return index;
+    }
+
+    @Benchmark
+    public String[] sentenceDetection() {
+        return pipeline.detectSentences(sentences[next()]);
+    }
+
+    @Benchmark
+    public String[] tokenization() {
+        return pipeline.tokenize(sentences[next()]);
+    }
+
+    @Benchmark
+    public String[] posTagging() {
+        return pipeline.tagPOS(tokens[next()]);
+    }
+
+    @Benchmark
+    public String[] lemmatization() {
+        int i = next();
+        return pipeline.lemmatize(tokens[i], posTags[i]);
+    }
+
+    @Benchmark
+    public double[] categorization() {
+        return pipeline.categorize(lemmas[next()]);
+    }
+
+    @Benchmark
+    public double[] fullPipeline() {
+        double[] outcomes = null;
+        for (String sentence : pipeline.detectSentences(sentences[next()]))
+            outcomes = pipeline.analyze(sentence).getCategoryDistribution();
+        return outcomes;
+    }
+}
@@ -0,0 +1,52 @@
+package com.inDrive.plugin.benchmarks;
+
+import com.inDrive.plugin.dialogue.PlaceIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures fuzzy place name lookups, exact and misheard, against the bundled places plus a few
+ * thousand learned ones, which is more than a rider's history will ever hold.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlaceIndexBenchmark {
+    private static final String[] PLACES = {
+            "Kothrud", "Kothrood", "Banner", "koregaon park", "Shivaji nagar", "Hinjewadi phase",
+            "Viman nagr", "pune station", "Magarpatta", "Andheri"
+    };
+
+    private PlaceIndex index;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        index = PlaceIndex.loadDefault();
+        for (int i = 0; i < 5000; i++)
+            index.add("Sector " + i + " Market Yard", "Sector " + i + " Market Yard");
+    }
+
+    @Benchmark
+    public Optional<String> lookup() {
+        next = (next + 1) % PLACES.length;
+        return index.lookup(PLACES[next]);
+    }
+}
@@ -0,0 +1,30 @@
+package com.inDrive.plugin.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+final class Utterances {
+    private static final String CORPUS = "/utterances.txt";
+
+    private Utterances() {
+    }
+
+    static String[] load() throws IOException {
+        List<String> utterances = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Utterances.class.getResourceAsStream(CORPUS), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                utterances.add(line);
+            }
+        }
+
+        return utterances.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,38 @@
+package com.inDrive.plugin.dialogue;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Something to be spoken to the rider, with what a speech queue needs to keep the rider's
+ * information current: how urgent it is, which earlier announcements it supersedes and how long
+ * it stays worth hearing.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class Announcement {
+    private final String text;
+    private final Priority priority;
+    // A queued announcement is dropped when a newer one on the same topic arrives; null for none.
+    private final String topic;
+    // Not spoken once it has waited longer than this; 0 to wait as long as it takes.
+    private final long maxAgeMillis;
+
+    /**
+     * A reply to what the rider said, or anything else they are waiting to hear.
+     */
+    public static Announcement reply(String text) {
+        return new Announcement(text, Priority.REPLY, null, 0);
+    }
+
+    /**
+     * Most urgent first.
+     */
+    public enum Priority {
+        URGENT,
+        REPLY,
+        PROGRESS
+    }
+}
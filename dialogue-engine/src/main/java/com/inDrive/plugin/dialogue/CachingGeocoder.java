@@ -0,0 +1,162 @@
+package com.inDrive.plugin.dialogue;
+
+import com.inDrive.plugin.model.Location;
+import com.inDrive.plugin.model.LocationCoordinate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * {@link Geocoder} that resolves spoken place names through a {@link PlaceIndex} before asking the
+ * remote geocoder, and remembers the result per canonical place. "Kothrud", "Kothrood" and
+ * "kot hrud" therefore cost one geocode call between them, even within one batch, and a
+ * misheard name is sent to the geocoder spelled the way it knows it. Names the index does not
+ * know are geocoded as spoken and, if found, added to the index for as long as they are cached.
+ * The least recently used place is evicted once the cache is full, so neither the cache nor the
+ * names it taught the index grow without bound.
+ * <p>
+ * Returned locations are shared between callers and must not be modified.
+ */
+public class CachingGeocoder implements Geocoder {
+    private Geocoder delegate;
+    private PlaceIndex placeIndex;
+    private int maxEntries;
+    private LinkedHashMap<String, Location> locations;
+    // Cached names that were added to the index, and leave it with the cache.
+    private Set<String> learnedNames = new HashSet<>();
+
+    private long hits;
+    private long fuzzyHits;
+    private long misses;
+    private long failures;
+
+    public CachingGeocoder(Geocoder delegate, PlaceIndex placeIndex, int maxEntries) {
+        this.delegate = delegate;
+        this.placeIndex = placeIndex;
+        this.maxEntries = maxEntries;
+        this.locations = new LinkedHashMap<String, Location>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Location> eldest) {
+                if (size() <= CachingGeocoder.this.maxEntries) return false;
+                if (learnedNames.remove(eldest.getKey()))
+                    placeIndex.remove(eldest.getKey());
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public Optional<Location> getCurrentLocation() {
+        return delegate.getCurrentLocation();
+    }
+
+    @Override
+    public Optional<Location> getLocation(String place) {
+        return getLocations(List.of(place)).get(0);
+    }
+
+    /**
+     * Resolve every place through the index and the cache, then geocode the distinct places
+     * that are left in one batch.
+     */
+    @Override
+    public List<Optional<Location>> getLocations(List<String> places) {
+        List<Optional<Location>> result = new ArrayList<>(places.size());
+        // Canonical or spoken name of every place still to be geocoded, with its positions.
+        Map<String, List<Integer>> missing = new LinkedHashMap<>();
+        Map<String, String> spokenNames = new HashMap<>();
+
+        synchronized (this) {
+            for (int i = 0; i < places.size(); i++) {
+                String spoken = places.get(i).trim();
+                Optional<String> canonical = placeIndex.lookup(spoken);
+                String name = canonical.orElse(spoken);
+
+                Location location = locations.get(name);
+                if (location != null) {
+                    hits++;
+                    if (!PlaceIndex.key(name).equals(PlaceIndex.key(spoken))) fuzzyHits++;
+                    result.add(Optional.of(location));
+                    continue;
+                }
+                result.add(Optional.empty());
+                // Repeats within the batch ride along with the first one.
+                if (missing.containsKey(name)) hits++;
+                else misses++;
+                missing.computeIfAbsent(name, n -> new ArrayList<>(1)).add(i);
+                if (!canonical.isPresent()) spokenNames.put(name, spoken);
+            }
+        }
+        if (missing.isEmpty()) return result;
+
+        // Geocoding runs outside the lock; two riders missing on the same place both fetch it.
+        List<String> names = new ArrayList<>(missing.keySet());
+        List<Optional<Location>> found = delegate.getLocations(names);
+        for (int n = 0; n < names.size(); n++) {
+            Optional<Location> location = found.get(n);
+            if (!location.isPresent()) {
+                synchronized (this) {
+                    failures++;
+                }
+                continue;
+            }
+
+            String name = names.get(n);
+            synchronized (this) {
+                if (spokenNames.containsKey(name) && learnedNames.add(name))
+                    placeIndex.add(spokenNames.get(name), name);
+                locations.put(name, location.get());
+            }
+            for (int i : missing.get(name))
+                result.set(i, location);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Optional<Location>> getLocationsAt(List<LocationCoordinate> points) {
+        return delegate.getLocationsAt(points);
+    }
+
+    @Override
+    public Optional<Location> getLocation(double latitude, double longitude) {
+        return delegate.getLocation(latitude, longitude);
+    }
+
+    public synchronized int size() {
+        return locations.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return hits for names spelled differently from the place they resolved to
+     */
+    public synchronized long getFuzzyHits() {
+        return fuzzyHits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return geocode calls that found nothing
+     */
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,11 @@
+package com.inDrive.plugin.dialogue;
+
+/**
+ * Time source of the dialogue engine. Ride progress updates are scheduled through it so a
+ * headless run can replace the Android main looper with its own (possibly accelerated) timer.
+ */
+public interface Clock {
+    long currentTimeMillis();
+
+    void schedule(Runnable task, long delayMillis);
+}
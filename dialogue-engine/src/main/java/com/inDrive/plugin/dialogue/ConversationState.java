@@ -0,0 +1,47 @@
+package com.inDrive.plugin.dialogue;
+
+import com.inDrive.plugin.dispatch.DriverDispatcher;
+import com.inDrive.plugin.model.Location;
+import com.inDrive.plugin.model.Passenger;
+import com.inDrive.plugin.model.Ride;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Dialogue state of one rider. The engine only keeps shared, read-only resources, so any number
+ * of conversations can be served by one {@link DialogueEngine}. Turns of a conversation
+ * synchronize on its state.
+ */
+@Getter
+@Setter
+public class ConversationState {
+    private Location source;
+    private Location dest;
+
+    private Ride ride;
+    // Driver dispatched for the ride, returned to the pool when it ends or is cancelled.
+    private DriverDispatcher.Assignment driverAssignment;
+    private Question lastQuestion;
+
+    // Favourite place labels ("home") the rider asked for before we knew where they are; the
+    // place confirmed for them is remembered under the label.
+    private String pendingSourceLabel;
+    private String pendingDestLabel;
+
+    // Tokens and proper nouns of the sentence being processed.
+    private List<String> properNouns;
+    private String[] tokens;
+
+    private volatile long lastAccessMillis;
+
+    public ConversationState(Passenger passenger) {
+        ride = new Ride(passenger);
+        lastQuestion = Question.NULL;
+        properNouns = new ArrayList<>();
+        tokens = new String[0];
+    }
+}
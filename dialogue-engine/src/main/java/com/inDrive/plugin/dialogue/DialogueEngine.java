@@ -0,0 +1,903 @@
+package com.inDrive.plugin.dialogue;
+
+import com.inDrive.plugin.dispatch.DriverDispatcher;
+import com.inDrive.plugin.dispatch.DriverPool;
+import com.inDrive.plugin.model.Driver;
+import com.inDrive.plugin.model.Location;
+import com.inDrive.plugin.model.LocationCoordinate;
+import com.inDrive.plugin.model.Passenger;
+import com.inDrive.plugin.model.Ride;
+import com.inDrive.plugin.model.RideSnapshot;
+import com.inDrive.plugin.model.RideStatus;
+import com.inDrive.plugin.model.Route;
+import com.inDrive.plugin.nlp.NlpPipeline;
+import com.inDrive.plugin.nlp.SentenceAnalysis;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Platform independent dialogue logic of the ride booking chatbot. Everything the engine needs
+ * from the outside world (NLP models, geocoding, routing, time and event delivery) is injected,
+ * so it runs the same on Android and on a plain JVM. Per rider state lives in
+ * {@link ConversationState}, so one engine can serve many riders concurrently.
+ */
+public class DialogueEngine {
+    private static final List<String> RATING_WORDS = Arrays.asList("one", "two", "three", "four", "five");
+    // Announcements about the driver coming to the pickup, and about the ride itself. A progress
+    // update is stale by the time the next one is due.
+    private static final String DRIVER_TOPIC = "driver";
+    private static final String RIDE_TOPIC = "ride";
+    private static final long PROGRESS_MAX_AGE_MILLIS = 10000;
+
+    private NlpPipeline nlpPipeline;
+
+    private Geocoder geocoder;
+    private Router router;
+    private Clock clock;
+    private EventPublisher eventPublisher;
+    private DialogueStateMachine stateMachine;
+    private FastPathClassifier fastPathClassifier;
+    private IntentScorer intentScorer;
+    private FavouritePlaces favouritePlaces;
+    private DriverDispatcher driverDispatcher;
+
+    public DialogueEngine(NlpPipeline nlpPipeline, Geocoder geocoder, Router router, Clock clock,
+                          EventPublisher eventPublisher) {
+        this(nlpPipeline, geocoder, router, clock, eventPublisher, new FavouritePlaces());
+    }
+
+    public DialogueEngine(NlpPipeline nlpPipeline, Geocoder geocoder, Router router, Clock clock,
+                          EventPublisher eventPublisher, FavouritePlaces favouritePlaces) {
+        this(nlpPipeline, geocoder, router, clock, eventPublisher, favouritePlaces,
+                new DriverDispatcher(loadDefaultDriverPool(), null, router));
+    }
+
+    public DialogueEngine(NlpPipeline nlpPipeline, Geocoder geocoder, Router router, Clock clock,
+                          EventPublisher eventPublisher, FavouritePlaces favouritePlaces,
+                          DriverDispatcher driverDispatcher) {
+        this.nlpPipeline = nlpPipeline;
+        this.favouritePlaces = favouritePlaces;
+        this.driverDispatcher = driverDispatcher;
+        this.geocoder = geocoder;
+        this.router = router;
+        this.clock = clock;
+        this.eventPublisher = eventPublisher;
+        try {
+            this.stateMachine = DialogueStateMachine.loadDefault(createTurnHandlers());
+            this.fastPathClassifier = FastPathClassifier.loadDefault();
+            this.intentScorer = IntentScorer.loadDefault(IntentScorer.DEFAULT_CONFIDENCE_THRESHOLD);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static DriverPool loadDefaultDriverPool() {
+        try {
+            return DriverPool.loadDefault();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Release what a conversation still holds, such as the driver of a ride that never started,
+     * once the rider has left.
+     */
+    public void endConversation(ConversationState state) {
+        synchronized (state) {
+            releaseDriver(state, null);
+        }
+    }
+
+    /**
+     * Pick up a ride recovered after the process was killed. Only a ride still being planned is
+     * resumed. A finished one is dropped, and one that was booked is cancelled, as its driver and
+     * progress timers did not survive the restart.
+     *
+     * @return what to tell the rider about it, if anything
+     */
+    public Optional<String> resumeRide(ConversationState state, RideSnapshot recovered) {
+        synchronized (state) {
+            switch (recovered.getRideStatus()) {
+                case NOT_BOOKED:
+                    state.setRide(new Ride(recovered));
+                    return Optional.empty();
+                case REACHED:
+                    return Optional.empty();
+                default:
+                    return Optional.of("Your ride from " + recovered.getSource().getLocationName() + " to "
+                            + recovered.getDestination().getLocationName()
+                            + " was cancelled because the app was restarted. Please book it again.");
+            }
+        }
+    }
+
+    public boolean isInitialized() {
+        return nlpPipeline.isInitialized();
+    }
+
+    public String getResponse(ConversationState state, String input) throws IOException {
+        if(!nlpPipeline.isInitialized()) {
+            return " ";
+        }
+        String answer = "";
+
+        // Turns of one rider are processed one at a time; different riders run in parallel.
+        synchronized (state) {
+            state.setLastAccessMillis(clock.currentTimeMillis());
+
+            // Short answers the current question is waiting for skip the NLP pipeline.
+            Optional<String> fastPathAnswer = respondOnFastPath(state, input);
+            if (fastPathAnswer.isPresent())
+                return fastPathAnswer.get();
+
+            // Break users chat input into sentences using sentence detection.
+            String[] sentences = breakSentences(input);
+
+            // Loop through sentences.
+            for (String sentence : sentences) {
+
+                // Tokenize, POS tag, lemmatize and categorize the sentence; repeated sentences
+                // come from the pipeline's cache.
+                SentenceAnalysis analysis = analyzeSentence(sentence);
+                setSentence(state, analysis);
+
+                // Determine BEST intent using the category distribution of the lemmatized
+                // tokens, weighted by what the last question expects.
+                UserIntent intent = detectIntent(state, analysis);
+
+                // Get predefined answer from given intent & add to answer.
+                answer = respond(state, intent, input);
+            }
+        }
+
+        return answer;
+    }
+
+    /**
+     * Respond to the N-best transcriptions of a spoken utterance. The intent is scored over all
+     * hypotheses, weighted by the recognizer's confidence, so a misrecognized top hypothesis
+     * can be outvoted by the ones below it.
+     *
+     * @param hypotheses transcriptions, best first
+     * @param confidenceScores recognizer confidence of each hypothesis, or null if not reported
+     */
+    public String getResponse(ConversationState state, List<String> hypotheses, float[] confidenceScores)
+            throws IOException {
+        // Nothing recognized is answered like an empty utterance.
+        if (hypotheses.size() <= 1)
+            return getResponse(state, hypotheses.isEmpty() ? "" : hypotheses.get(0));
+        if(!nlpPipeline.isInitialized()) {
+            return " ";
+        }
+
+        synchronized (state) {
+            state.setLastAccessMillis(clock.currentTimeMillis());
+
+            // Only the top hypothesis may skip scoring; a short answer further down the list is
+            // weighed against the others like any hypothesis.
+            Optional<String> fastPathAnswer = respondOnFastPath(state, hypotheses.get(0));
+            if (fastPathAnswer.isPresent())
+                return fastPathAnswer.get();
+
+            // All hypotheses are analyzed and categorized in one batch.
+            List<SentenceAnalysis> analyses = nlpPipeline.analyzeAll(hypotheses.toArray(new String[0]));
+            double[] weights = hypothesisWeights(confidenceScores, hypotheses.size());
+            double[][] probabilities = new double[analyses.size()][];
+            String[][] categories = new String[analyses.size()][];
+            for (int h = 0; h < analyses.size(); h++) {
+                probabilities[h] = analyses.get(h).getCategoryDistribution();
+                categories[h] = analyses.get(h).getCategories();
+            }
+            List<ScoredIntent> topIntents = intentScorer.score(probabilities, categories, weights,
+                    state.getLastQuestion(), IntentScorer.DEFAULT_TOP_K);
+            System.out.println("Intents over " + hypotheses.size() + " hypotheses: " + topIntents);
+            UserIntent intent = intentScorer.bestIntent(topIntents);
+
+            // Locations are taken from the hypothesis that supports the chosen intent most.
+            int best = 0;
+            double bestSupport = -1;
+            for (int h = 0; h < analyses.size(); h++) {
+                double support = weights[h] * probabilityOf(intent, probabilities[h], categories[h]);
+                if (support > bestSupport) {
+                    best = h;
+                    bestSupport = support;
+                }
+            }
+            setSentence(state, analyses.get(best));
+            return respond(state, intent, hypotheses.get(best));
+        }
+    }
+
+    private Optional<String> respondOnFastPath(ConversationState state, String input) {
+        String[] normalizedTokens = FastPathClassifier.normalize(input);
+        Optional<UserIntent> fastPathIntent = fastPathClassifier.classify(normalizedTokens);
+        if (!fastPathIntent.isPresent() || !isExpected(state, fastPathIntent.get()))
+            return Optional.empty();
+
+        System.out.println("Fast path: " + fastPathIntent.get());
+        state.setTokens(normalizedTokens);
+        state.setProperNouns(new ArrayList<>());
+        return Optional.of(respond(state, fastPathIntent.get(), input));
+    }
+
+    private void setSentence(ConversationState state, SentenceAnalysis analysis) {
+        String[] tokens = analysis.getTokens();
+        String[] posTags = analysis.getPosTags();
+
+        List<String> properNouns = new ArrayList<>();
+
+        for(int i=0; i<tokens.length; i++) {
+            if(posTags[i].equals("NNP")) {
+                properNouns.add(tokens[i].toLowerCase());
+            }
+            if(tokens.length <= 3 && posTags[i].equals("NN")) {
+                properNouns.add(tokens[i].toLowerCase());
+            }
+        }
+        state.setTokens(tokens);
+        state.setProperNouns(properNouns);
+    }
+
+    /**
+     * Normalize the recognizer confidences; fall back to weights decaying with rank when they are
+     * missing, as some recognizers report none or only zeros.
+     */
+    private static double[] hypothesisWeights(float[] confidenceScores, int count) {
+        double[] weights = new double[count];
+        double total = 0;
+        boolean useConfidence = confidenceScores != null && confidenceScores.length >= count;
+        for (int h = 0; useConfidence && h < count; h++) {
+            if (confidenceScores[h] < 0) useConfidence = false;
+            else total += confidenceScores[h];
+        }
+        if (!useConfidence || total <= 0) {
+            total = 0;
+            for (int h = 0; h < count; h++) {
+                weights[h] = 1.0 / (h + 1);
+                total += weights[h];
+            }
+        } else {
+            for (int h = 0; h < count; h++)
+                weights[h] = confidenceScores[h];
+        }
+        for (int h = 0; h < count; h++)
+            weights[h] /= total;
+        return weights;
+    }
+
+    private static double probabilityOf(UserIntent intent, double[] probabilities, String[] categories) {
+        for (int i = 0; i < categories.length; i++) {
+            if (categories[i].equals(intent.getCategory()))
+                return probabilities[i];
+        }
+        return 0;
+    }
+
+    private boolean isExpected(ConversationState state, UserIntent intent) {
+        if (intent == UserIntent.RATING)
+            return state.getRide().getSnapshot().getRideStatus() == RideStatus.REACHED;
+        return stateMachine.expects(state.getLastQuestion(), intent);
+    }
+
+    /**
+     * Detect intent from the categorizer output of Apache OpenNLP, conditioned on the last
+     * question asked.
+     *
+     * @param state
+     * @param analysis
+     * @return
+     */
+    private UserIntent detectIntent(ConversationState state, SentenceAnalysis analysis) {
+
+        // Get best possible intents.
+        List<ScoredIntent> topIntents = intentScorer.score(analysis.getCategoryDistribution(), analysis.getCategories(),
+                state.getLastQuestion(), IntentScorer.DEFAULT_TOP_K);
+        System.out.println("Intents: " + topIntents);
+
+        return intentScorer.bestIntent(topIntents);
+
+    }
+
+    /**
+     * Break data into sentences using sentence detection feature of Apache OpenNLP.
+     *
+     * @param data
+     * @return
+     * @throws FileNotFoundException
+     * @throws IOException
+     */
+    private String[] breakSentences(String data) throws FileNotFoundException, IOException {
+        String[] sentences = nlpPipeline.detectSentences(data);
+
+        System.out.println("Sentence Detection: " + Arrays.stream(sentences).collect(Collectors.joining(" | ")));
+
+        return sentences;
+    }
+
+    /**
+     * Break sentence into words & punctuation marks, tag them with POS tags to understand their
+     * gramatical structure, lemmatize them and categorize the lemmas using Apache OpenNLP.
+     *
+     * @param sentence
+     * @return
+     */
+    private SentenceAnalysis analyzeSentence(String sentence) {
+        SentenceAnalysis analysis = nlpPipeline.analyze(sentence);
+        System.out.println("Tokenizer : " + String.join(" | ", analysis.getTokens()));
+        System.out.println("POS Tags : " + String.join(" | ", analysis.getPosTags()));
+        System.out.println("Lemmatizer : " + String.join(" | ", analysis.getLemmas()));
+        return analysis;
+    }
+
+    public String processInstruction(ConversationState state, String category, String instruction) {
+        return respond(state, UserIntent.fromCategory(category), instruction);
+    }
+
+    private String respond(ConversationState state, UserIntent intent, String instruction) {
+        System.out.println("Instruction Type: " + state.getLastQuestion());
+        return stateMachine.dispatch(state, intent, instruction);
+    }
+
+    private Map<String, TurnHandler> createTurnHandlers() {
+        Map<String, TurnHandler> handlers = new HashMap<>();
+        handlers.put("captureDestination", this::captureDestination);
+        handlers.put("captureSource", this::captureSource);
+        handlers.put("greet", this::greet);
+        handlers.put("bookCab", (state, instruction) -> processBookCabCommand(state));
+        handlers.put("locationInquiry", (state, instruction) -> processLocationInquiry());
+        handlers.put("driverInquiry", (state, instruction) -> processDriverInquiry(state));
+        handlers.put("vehicleInquiry", (state, instruction) -> processVehicleInquiry(state));
+        handlers.put("timeForDriver", this::timeForDriver);
+        handlers.put("timeToReach", this::timeToReach);
+        handlers.put("changeSource", this::changeSource);
+        handlers.put("changeDestination", this::processChangeDestination);
+        handlers.put("otpInquiry", this::otpInquiry);
+        handlers.put("startRide", (state, instruction) -> startRide(state));
+        handlers.put("acknowledge", (state, instruction) -> "Okay");
+        handlers.put("rateDriver", this::rateDriver);
+        handlers.put("callDriver", (state, instruction) -> callDriver(state));
+        handlers.put("stop", (state, instruction) -> "Sure.");
+        handlers.put("askCancelRide", this::askCancelRide);
+        handlers.put("askToRepeat", (state, instruction) -> "Sorry. Could you repeat?");
+        handlers.put("ignore", (state, instruction) -> "");
+        handlers.put("confirmRide", this::confirmRide);
+        handlers.put("askUpdatedDestination", this::askUpdatedDestination);
+        handlers.put("askUseCurrentLocation", this::askUseCurrentLocation);
+        handlers.put("confirmDestination", this::confirmDestination);
+        handlers.put("confirmSource", this::confirmSource);
+        handlers.put("useCurrentLocation", this::useCurrentLocation);
+        handlers.put("cancelRide", (state, instruction) -> cancelRide(state));
+        handlers.put("askUpdateDestination", this::askUpdateDestination);
+        handlers.put("keepDestination", this::keepDestination);
+        handlers.put("keepSource", this::keepSource);
+        handlers.put("rejectDestination", this::rejectDestination);
+        handlers.put("rejectSource", this::rejectSource);
+        handlers.put("askPickup", this::askPickup);
+        handlers.put("keepRide", (state, instruction) -> "Okay.");
+        return handlers;
+    }
+
+    private String captureDestination(ConversationState state, String instruction) {
+        Location loc = fetchLocationFromText(state, instruction);
+        if(loc == null) return null;
+        state.setDest(loc);
+        state.setLastQuestion(Question.CONFIRM_DEST);
+        return "Do you want to set the drop location to "+state.getDest().getLocationName()+"?";
+    }
+
+    private String captureSource(ConversationState state, String instruction) {
+        Location loc = fetchLocationFromText(state, instruction);
+        if(loc == null) return null;
+        state.setSource(loc);
+        state.setLastQuestion(Question.CONFIRM_SOURCE);
+        return "Do you want to set the pickup location to "+state.getSource().getLocationName()+"?";
+    }
+
+    private String greet(ConversationState state, String instruction) {
+        state.setLastQuestion(Question.GREETING);
+        return "Hey there! How can I help you?";
+    }
+
+    private String timeForDriver(ConversationState state, String instruction) {
+        RideSnapshot ride = state.getRide().getSnapshot();
+        if(ride.getRideStatus() == RideStatus.BOOKED) {
+            return ride.getDriver().getDriverName()+ " will arrive in "+ride.getTimeInMinutesForDriver()+" minutes.";
+        }
+        else if(ride.getRideStatus() == RideStatus.DRIVER_ARRIVED){
+            return ride.getDriver().getDriverName()+" has arrived at the pickup.";
+        }
+        return "";
+    }
+
+    private String timeToReach(ConversationState state, String instruction) {
+        RideSnapshot ride = state.getRide().getSnapshot();
+        if(ride.getRideStatus() != RideStatus.NOT_BOOKED) {
+            return "You will reach the destination in "+ride.getTimeInMinutesToReachDest()+" minutes.";
+        }
+        return "";
+    }
+
+    private String changeSource(ConversationState state, String instruction) {
+        if(state.getRide().getSnapshot().getRideStatus() == RideStatus.STARTED) {
+            return "Ride is already started. You cannot update pickup now.";
+        }
+        return processChangeSource(state, instruction);
+    }
+
+    private String otpInquiry(ConversationState state, String instruction) {
+        RideSnapshot ride = state.getRide().getSnapshot();
+        if(ride.getRideStatus() != RideStatus.NOT_BOOKED) {
+            return "Your OTP is " + ride.getOtp() + ".";
+        }
+        return "Ride is not booked yet.";
+    }
+
+    private String rateDriver(ConversationState state, String instruction) {
+        int stars = fetchRatingFromString(instruction);
+        // The driver is shared with the driver pool, so the rating goes on a copy in the snapshot.
+        state.getRide().update(r -> {
+            Driver driver = r.getDriver();
+            if (driver == null) return r;
+            return r.withDriver(new Driver(driver.getDriverName(), driver.getVehicle(), driver.getDriverContact(), stars));
+        });
+        return "Thanks";
+    }
+
+    private String askCancelRide(ConversationState state, String instruction) {
+        if(state.getRide().getSnapshot().getRideStatus() == RideStatus.NOT_BOOKED) {
+            return "Ride not booked yet.";
+        }
+        state.setLastQuestion(Question.SURE_CANCEL);
+        return "Are you sure you want to cancel the ride?";
+    }
+
+    private String confirmRide(ConversationState state, String instruction) {
+        RideSnapshot ride = state.getRide().update(r -> r.withSource(state.getSource()).withDestination(state.getDest()));
+        rememberConfirmedPlaces(state);
+        if(ride.getRideStatus() == RideStatus.NOT_BOOKED) {
+            return bookRide(state);
+        }
+        return "Pick up and drop locations updated.";
+    }
+
+    private String askUpdatedDestination(ConversationState state, String instruction) {
+        state.setLastQuestion(Question.SPECIFY_DEST);
+        return "Please specify the updated destination";
+    }
+
+    private String askUseCurrentLocation(ConversationState state, String instruction) {
+        state.setLastQuestion(Question.USE_CURRENT_LOCATION);
+        return "Do you want to use your current location as the pickup?";
+    }
+
+    private String confirmDestination(ConversationState state, String instruction) {
+        RideSnapshot ride = state.getRide().update(r -> r.withDestination(state.getDest()));
+        rememberConfirmedPlaces(state);
+        String response = "Successfully updated destination to "+ state.getDest().getLocationName()+". ";
+        if(ride.getRideStatus() != RideStatus.STARTED) {
+            response += confirmSourceAndDest(state);
+        }
+        return response;
+    }
+
+    private String confirmSource(ConversationState state, String instruction) {
+        RideSnapshot ride = state.getRide().update(r -> r.withSource(state.getSource()));
+        rememberConfirmedPlaces(state);
+        String response = "Successfully updated pickup to "+ state.getSource().getLocationName()+". ";
+        if(ride.getRideStatus() != RideStatus.STARTED) {
+            response += confirmSourceAndDest(state);
+        }
+        return response;
+    }
+
+    private String useCurrentLocation(ConversationState state, String instruction) {
+        state.setSource(getCurrentLocation());
+        return "Successfully updated pickup to "+ state.getSource().getLocationName()+". "
+                + confirmSourceAndDest(state);
+    }
+
+    private String askUpdateDestination(ConversationState state, String instruction) {
+        state.setLastQuestion(Question.UPDATE_DEST_QUESTION);
+        if(state.getDest() != null) {
+            return "Do you want to update the destination from " + state.getDest().getLocationName();
+        }
+        return "Do you want to update the destination?";
+    }
+
+    private String keepDestination(ConversationState state, String instruction) {
+        if(state.getRide().getSnapshot().getRideStatus() == RideStatus.STARTED) {
+            state.setLastQuestion(Question.NULL);
+            return "Okay.";
+        }
+        state.setLastQuestion(Question.UPDATE_SOURCE_QUESTION);
+        if (state.getSource() != null) {
+            return "Do you want to update the pickup from " + state.getSource().getLocationName();
+        }
+        return "Do you want to update the pickup?";
+    }
+
+    private String keepSource(ConversationState state, String instruction) {
+        return okayOrConfirm(state);
+    }
+
+    private String rejectDestination(ConversationState state, String instruction) {
+        state.setDest(state.getRide().getSnapshot().getDestination());
+        return okayOrConfirm(state);
+    }
+
+    private String rejectSource(ConversationState state, String instruction) {
+        state.setSource(state.getRide().getSnapshot().getSource());
+        return okayOrConfirm(state);
+    }
+
+    private String okayOrConfirm(ConversationState state) {
+        RideSnapshot ride = state.getRide().getSnapshot();
+        if(ride.getSource() != null && ride.getDestination() != null) {
+            return "Okay.";
+        }
+        return confirmSourceAndDest(state);
+    }
+
+    private String askPickup(ConversationState state, String instruction) {
+        state.setLastQuestion(Question.SPECIFY_SOURCE);
+        return "Please specify the pickup location.";
+    }
+
+    private String startRide(ConversationState state) {
+        Ride ride = state.getRide();
+        RideSnapshot arrived = ride.getSnapshot();
+        Optional<Route> route = Optional.empty();
+        if (arrived.getRideStatus() == RideStatus.DRIVER_ARRIVED) {
+            // The route is needed for the ride's progress, so the ride only starts once it is known.
+            route = router.getRoute(List.of(arrived.getSource(), arrived.getDestination()));
+            if (!route.isPresent() || route.get().getCoordinates() == null || route.get().getCoordinates().isEmpty())
+                return "Sorry, I could not find a route to your destination. Please try again in a moment.";
+        }
+        Optional<RideSnapshot> started = route.isPresent()
+                ? ride.transition(arrived.getBookingVersion(), RideStatus.DRIVER_ARRIVED, RideStatus.STARTED, r -> r)
+                : Optional.empty();
+        if(started.isPresent()) {
+            RideSnapshot snapshot = started.get();
+            long booking = snapshot.getBookingVersion();
+
+            List<List<Double>> coords = route.get().getCoordinates();
+            int index = coords.size()/5;
+            // The places passed on the way are reverse geocoded in one batch, while the ride starts.
+            List<LocationCoordinate> waypoints = new ArrayList<>(3);
+            for(int i=0; i<3; i++) {
+                List<Double> point = coords.get(index * (i+1));
+                waypoints.add(new LocationCoordinate(point.get(1), point.get(0)));
+            }
+            CompletableFuture<List<Optional<Location>>> passedPlaces =
+                    CompletableFuture.supplyAsync(() -> geocoder.getLocationsAt(waypoints));
+            for(int i=0; i<3; i++) {
+                int finalI = i;
+                clock.schedule(() -> {
+                            // Nothing to announce once the ride is cancelled.
+                            if (!ride.transition(booking, RideStatus.STARTED, RideStatus.STARTED, r ->
+                                    r.withTimeInMinutesToReachDest(Math.max(0, r.getTimeInMinutesToReachDest() - 2))).isPresent())
+                                return;
+                            // Timers may run on the main thread, so the lookup is not waited for.
+                            passedPlaces.thenAccept(places -> places.get(finalI).ifPresent(place ->
+                                    eventPublisher.publishAnnouncement(new Announcement("You are now passing by "+place.getLocationName(),
+                                            Announcement.Priority.PROGRESS, RIDE_TOPIC, PROGRESS_MAX_AGE_MILLIS))))
+                                    .exceptionally(ex -> {
+                                        System.out.println("Could not look up the places passed: " + ex);
+                                        return null;
+                                    });
+                        }
+                        , 15000*(i+1));
+
+            }
+            clock.schedule(() -> {
+                if (!ride.transition(booking, RideStatus.STARTED, RideStatus.REACHED, r -> r.withTimeInMinutesToReachDest(0)).isPresent())
+                    return;
+                synchronized (state) {
+                    // The driver waits for the next ride where this one ended.
+                    releaseDriver(state, snapshot.getDestination().getLocationCoordinates());
+                }
+                eventPublisher.publishDestinationReached(new Announcement("You have arrived at the destination.",
+                        Announcement.Priority.URGENT, RIDE_TOPIC, 0));
+            }, 60000);
+             return  "Ride started. Enjoy your journey!";
+        }
+        else if(ride.getSnapshot().getRideStatus() == RideStatus.BOOKED) {
+            return "Please wait for the driver to arrive.";
+        }
+        else return "Please book a cab first.";
+    }
+
+    private String callDriver(ConversationState state) {
+        RideSnapshot ride = state.getRide().getSnapshot();
+        if(ride.getRideStatus() == RideStatus.NOT_BOOKED || ride.getDriver() == null){
+            return "No driver assigned.";
+        }
+        return "Calling the driver at " + ride.getDriver().getDriverContact();
+
+    }
+
+    private String cancelRide(ConversationState state) {
+        releaseDriver(state, null);
+        state.getRide().update(r -> RideSnapshot.notBooked(r.getPassenger()));
+        return "Ride cancelled successfully.";
+    }
+
+    private int fetchRatingFromString(String instruction) {
+        for (String token : FastPathClassifier.normalize(instruction)) {
+            int stars = RATING_WORDS.indexOf(token) + 1;
+            if (stars == 0 && token.length() == 1 && token.charAt(0) >= '1' && token.charAt(0) <= '5')
+                stars = token.charAt(0) - '0';
+            if (stars > 0) return stars;
+        }
+        return 4;
+    }
+
+    private Location getCurrentLocation() {
+        Optional<Location> locationOptional = geocoder.getCurrentLocation();
+
+        if (!locationOptional.isPresent())
+            return null;
+
+        return locationOptional.get();
+    }
+
+
+    private Location fetchLocationFromText(ConversationState state, String instruction) {
+        for (String token : state.getTokens()) {
+            Optional<String> label = FavouritePlaces.labelOf(token);
+            Optional<Location> favourite = label.flatMap(l -> favouritePlaces.getLabelledPlace(riderId(state), l));
+            if (favourite.isPresent()) {
+                System.out.println("Favourite: " + label.get());
+                return favourite.get();
+            }
+        }
+
+        List<String> properNouns = state.getProperNouns();
+        Location loc;
+        String locStr = "";
+        if(properNouns.isEmpty()) {
+            return null;
+        }
+        for(String noun: properNouns) {
+            locStr += " " + noun;
+        }
+        loc = getLocation(state, locStr);
+        if( loc != null) {
+            System.out.println("Location: " + loc.getLocationName());
+            return loc;
+        }
+        return null;
+    }
+
+    private Location getLocation(ConversationState state, String noun) {
+        // Places the rider confirmed before need no geocoding.
+        Optional<Location> locationOptional = favouritePlaces.findRecentPlace(riderId(state), noun);
+        if (locationOptional.isPresent())
+            return locationOptional.get();
+
+        locationOptional = geocoder.getLocation(noun);
+
+        if (!locationOptional.isPresent())
+            return null;
+
+        return locationOptional.get();
+    }
+
+    private String bookRide(ConversationState state) {
+        Ride ride = state.getRide();
+        RideSnapshot request = ride.getSnapshot();
+        // The route is checked before a driver is claimed, so a failed booking holds no driver.
+        Optional<Route> route = router.getRoute(List.of(request.getSource(), request.getDestination()));
+        if (!route.isPresent())
+            return "Sorry, I could not find a route to your destination. Please try again in a moment.";
+        Optional<DriverDispatcher.Assignment> assignment = driverDispatcher.dispatch(request.getSource().getLocationCoordinates());
+        if (!assignment.isPresent())
+            return "No drivers are available right now. Please try again in a few minutes.";
+        state.setDriverAssignment(assignment.get());
+        int timeInMinutesForDriver = (int) Math.max(1, Math.round(assignment.get().getEta() / 60000.0));
+        int timeToReach = (int) (route.get().getTime()/60000);
+        Optional<RideSnapshot> booked = ride.transition(RideStatus.NOT_BOOKED, RideStatus.BOOKED, r -> r
+                .withBookingVersion(r.getVersion() + 1)
+                .withDriver(assignment.get().getDriver().getDriver())
+                .withTimeInMinutesForDriver(timeInMinutesForDriver)
+                .withTimeInMinutesToReachDest(timeToReach));
+        if (!booked.isPresent()) {
+            releaseDriver(state, null);
+            return "Your ride is already booked.";
+        }
+        // The timers only change this booking, not one made after it is cancelled.
+        long booking = booked.get().getBookingVersion();
+        for(int i=0; i<2; i++) {
+            clock.schedule(() -> ride.transition(booking, RideStatus.BOOKED, RideStatus.BOOKED, r ->
+                            r.withTimeInMinutesForDriver(Math.max(1, r.getTimeInMinutesForDriver() - 2)))
+                    .ifPresent(updated -> eventPublisher.publishAnnouncement(new Announcement(
+                            "Your driver is arriving in "+updated.getTimeInMinutesForDriver()+" minutes.",
+                            Announcement.Priority.PROGRESS, DRIVER_TOPIC, PROGRESS_MAX_AGE_MILLIS)))
+            , 12000*(i+1));
+
+        }
+        clock.schedule(() -> ride.transition(booking, RideStatus.BOOKED, RideStatus.DRIVER_ARRIVED, r -> r.withTimeInMinutesForDriver(0))
+                .ifPresent(arrived -> eventPublisher.publishAnnouncement(new Announcement("The driver has arrived. Wait for the driver to approach you.",
+                        Announcement.Priority.URGENT, DRIVER_TOPIC, 0))),
+                36000);
+        RideSnapshot snapshot = booked.get();
+        return "Ride successfully booked. Your driver "+snapshot.getDriver().getDriverName()+" is arriving in "+snapshot.getTimeInMinutesForDriver()+" minutes. "
+                +"Booked cab is a "+snapshot.getDriver().getVehicle().getVehicleModel()+" with number "+snapshot.getDriver().getVehicle().getVehicleNumber()
+                +". Your One time password is "+snapshot.getOtp();
+    }
+
+    private void releaseDriver(ConversationState state, LocationCoordinate position) {
+        if (state.getDriverAssignment() == null) return;
+        driverDispatcher.release(state.getDriverAssignment(), position);
+        state.setDriverAssignment(null);
+    }
+
+    private String processChangeDestination(ConversationState state, String instruction) {
+        Location loc = fetchLocationFromText(state, instruction);
+        if(loc != null) {
+            state.setLastQuestion(Question.CONFIRM_DEST);
+            state.setDest(loc);
+            return "Do you want to change the drop to "+loc.getLocationName()+"?";
+        }
+        state.setLastQuestion(Question.UPDATE_DEST_QUESTION);
+        return "Are you sure you want to update the destination from "+state.getDest().getLocationName();
+    }
+
+    private String processChangeSource(ConversationState state, String instruction) {
+        Location loc = fetchLocationFromText(state, instruction);
+        if(loc != null) {
+            state.setLastQuestion(Question.CONFIRM_SOURCE);
+            state.setSource(loc);
+            return "Do you want to change the pickup to "+loc.getLocationName()+"?";
+        }
+        state.setLastQuestion(Question.UPDATE_SOURCE_QUESTION);
+        return "Are you sure you want to update the source from "+state.getSource().getLocationName();
+    }
+
+    private String processVehicleInquiry(ConversationState state) {
+        RideSnapshot ride = state.getRide().getSnapshot();
+        if(ride.getRideStatus() == RideStatus.NOT_BOOKED || ride.getDriver() == null){
+            return "No vehicle assigned.";
+        }
+        return "Your ride is a "+ride.getDriver().getVehicle().getVehicleModel()+" with number "+ride.getDriver().getVehicle().getVehicleNumber()+".";
+    }
+
+    private String processDriverInquiry(ConversationState state) {
+        RideSnapshot ride = state.getRide().getSnapshot();
+        if(ride.getRideStatus() == RideStatus.NOT_BOOKED || ride.getDriver() == null){
+            return "No driver assigned.";
+        }
+        return ride.getDriver().getDriverName()+" is your driver. They drive a "+ride.getDriver().getVehicle().getVehicleModel()+". They have a rating of  "+ride.getDriver().getStars()+" stars.";
+    }
+
+    private String processLocationInquiry() {
+        return "Your current location is " +getCurrentLocation().getLocationName();
+    }
+
+    private String processBookCabCommand(ConversationState state) {
+        state.setPendingSourceLabel(null);
+        state.setPendingDestLabel(null);
+        state.setSource(fetchSourceLocationFromInstr(state));
+        state.setDest(fetchDropLocationFromInstr(state));
+        return confirmSourceAndDest(state);
+    }
+
+    String confirmSourceAndDest(ConversationState state) {
+        if(state.getDest() == null) {
+            state.setLastQuestion(Question.SPECIFY_DEST);
+            if(state.getPendingDestLabel() != null)
+                return "I don't know your "+state.getPendingDestLabel()+" yet. Please specify destination";
+            return "Please specify destination";
+        }
+        if(state.getSource() == null) {
+            state.setLastQuestion(Question.USE_CURRENT_LOCATION);
+            if(state.getPendingSourceLabel() != null)
+                return "I don't know your "+state.getPendingSourceLabel()+" yet. Do you want to use your current location as the pickup?";
+            return "Do you want to use your current location as the pickup?";
+        }
+        state.setLastQuestion(Question.CONFIRM_SRC_DEST);
+        return "Request to book a cab from "+state.getSource().getLocationName()+" to "+state.getDest().getLocationName()+" received. Do you want to look for nearby rides?";
+    }
+    private Location fetchSourceLocationFromInstr(ConversationState state) {
+        Optional<String> label = findFavouriteLabel(state.getTokens(), true);
+        if (label.isPresent()) {
+            Optional<Location> favourite = favouritePlaces.getLabelledPlace(riderId(state), label.get());
+            if (!favourite.isPresent()) state.setPendingSourceLabel(label.get());
+            System.out.println("Source: " + label.get());
+            return favourite.orElse(null);
+        }
+
+        String[] tokens = state.getTokens();
+        List<String> properNouns = state.getProperNouns();
+        for(int i=0; i<tokens.length; i++) {
+            if((i+1)<tokens.length && tokens[i].equals("from") && properNouns.contains(tokens[i+1].toLowerCase())) {
+                String locString = tokens[i+1];
+                i++;
+                while((i+1)<tokens.length && properNouns.contains(tokens[i+1].toLowerCase())) {
+                    locString += " "+tokens[i+1];
+                    i++;
+                }
+                System.out.println("Source: " + locString);
+                return getLocation(state, locString);
+            }
+        }
+        return null;
+    }
+
+    private Location fetchDropLocationFromInstr(ConversationState state) {
+        Optional<String> label = findFavouriteLabel(state.getTokens(), false);
+        if (label.isPresent()) {
+            Optional<Location> favourite = favouritePlaces.getLabelledPlace(riderId(state), label.get());
+            if (!favourite.isPresent()) state.setPendingDestLabel(label.get());
+            System.out.println("Destination: " + label.get());
+            return favourite.orElse(null);
+        }
+
+        String[] tokens = state.getTokens();
+        List<String> properNouns = state.getProperNouns();
+        for(int i=0; i<tokens.length; i++) {
+            if((i+1)<tokens.length  && tokens[i].equals("to") && properNouns.contains(tokens[i+1].toLowerCase())) {
+                String locString = tokens[i+1];
+                i++;
+                while((i+1)<tokens.length && properNouns.contains(tokens[i+1].toLowerCase())) {
+                    locString += " "+tokens[i+1];
+                    i++;
+                }
+                System.out.println("Destination: " + locString);
+                return getLocation(state, locString);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find a favourite place label in "from home" (the pickup) or in "to the office",
+     * "take me home" (the drop).
+     */
+    private static Optional<String> findFavouriteLabel(String[] tokens, boolean isSource) {
+        for (int i = 0; i < tokens.length; i++) {
+            Optional<String> label = FavouritePlaces.labelOf(tokens[i]);
+            if (!label.isPresent()) continue;
+            int j = i - 1;
+            while (j >= 0 && (tokens[j].equalsIgnoreCase("my") || tokens[j].equalsIgnoreCase("the")))
+                j--;
+            boolean isFrom = j >= 0 && tokens[j].equalsIgnoreCase("from");
+            if (isFrom == isSource) return label;
+        }
+        return Optional.empty();
+    }
+
+    private void rememberConfirmedPlaces(ConversationState state) {
+        RideSnapshot ride = state.getRide().getSnapshot();
+        String riderId = riderId(state);
+        try {
+            if (state.getPendingSourceLabel() != null && ride.getSource() != null) {
+                favouritePlaces.setLabelledPlace(riderId, state.getPendingSourceLabel(), ride.getSource());
+                state.setPendingSourceLabel(null);
+            }
+            if (state.getPendingDestLabel() != null && ride.getDestination() != null) {
+                favouritePlaces.setLabelledPlace(riderId, state.getPendingDestLabel(), ride.getDestination());
+                state.setPendingDestLabel(null);
+            }
+            favouritePlaces.addRecentPlace(riderId, ride.getSource());
+            favouritePlaces.addRecentPlace(riderId, ride.getDestination());
+        } catch (IOException ex) {
+            System.out.println("Could not save favourite places: " + ex.getMessage());
+        }
+    }
+
+    private static String riderId(ConversationState state) {
+        Passenger passenger = state.getRide().getSnapshot().getPassenger();
+        return passenger == null || passenger.getPassengerContact() == null ? "" : passenger.getPassengerContact();
+    }
+}
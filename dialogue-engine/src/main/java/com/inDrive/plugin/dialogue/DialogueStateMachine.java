@@ -0,0 +1,115 @@
+package com.inDrive.plugin.dialogue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Dialogue transitions compiled from a declarative definition (see dialogue/transitions.txt)
+ * into arrays indexed by {@link Question} and {@link UserIntent} ordinals, so dispatching a
+ * turn is two array lookups. Loading fails if the definition names an unknown question, intent
+ * or handler, or leaves any (question, intent) pair without a handler.
+ */
+public class DialogueStateMachine {
+    public static final String DEFAULT_DEFINITION = "/dialogue/transitions.txt";
+
+    private static final String WILDCARD = "*";
+
+    private TurnHandler[] entryHandlers;
+    private TurnHandler[][] transitions;
+    private boolean[][] isExplicit;
+
+    private DialogueStateMachine(TurnHandler[] entryHandlers, TurnHandler[][] transitions, boolean[][] isExplicit) {
+        this.entryHandlers = entryHandlers;
+        this.transitions = transitions;
+        this.isExplicit = isExplicit;
+    }
+
+    public static DialogueStateMachine loadDefault(Map<String, TurnHandler> handlers) throws IOException {
+        try (InputStream is = DialogueStateMachine.class.getResourceAsStream(DEFAULT_DEFINITION)) {
+            if (is == null)
+                throw new IOException("Missing dialogue definition " + DEFAULT_DEFINITION);
+            return load(is, handlers);
+        }
+    }
+
+    public static DialogueStateMachine load(InputStream definition, Map<String, TurnHandler> handlers) throws IOException {
+        int questions = Question.values().length;
+        int intents = UserIntent.values().length;
+        TurnHandler[] entryHandlers = new TurnHandler[questions];
+        TurnHandler[][] transitions = new TurnHandler[questions][intents];
+        TurnHandler[] defaults = new TurnHandler[intents];
+        boolean[][] isExplicit = new boolean[questions][intents];
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(definition, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] parts = line.split("\\s+");
+            if (parts.length != 3)
+                throw new IllegalArgumentException(String.format("Line %d: expected <question> <intent> <handler>", lineNumber));
+
+            TurnHandler handler = handlers.get(parts[2]);
+            if (handler == null)
+                throw new IllegalArgumentException(String.format("Line %d: unknown handler %s", lineNumber, parts[2]));
+
+            try {
+                if (WILDCARD.equals(parts[1])) {
+                    entryHandlers[Question.valueOf(parts[0]).ordinal()] = handler;
+                } else if (WILDCARD.equals(parts[0])) {
+                    defaults[UserIntent.valueOf(parts[1]).ordinal()] = handler;
+                } else {
+                    int question = Question.valueOf(parts[0]).ordinal();
+                    int intent = UserIntent.valueOf(parts[1]).ordinal();
+                    transitions[question][intent] = handler;
+                    isExplicit[question][intent] = true;
+                }
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException(String.format("Line %d: %s", lineNumber, ex.getMessage()), ex);
+            }
+        }
+
+        for (Question question : Question.values()) {
+            for (UserIntent intent : UserIntent.values()) {
+                int q = question.ordinal(), i = intent.ordinal();
+                if (transitions[q][i] == null)
+                    transitions[q][i] = defaults[i];
+                if (transitions[q][i] == null)
+                    throw new IllegalStateException(String.format("No transition for %s in state %s", intent, question));
+            }
+        }
+
+        return new DialogueStateMachine(entryHandlers, transitions, isExplicit);
+    }
+
+    public String dispatch(ConversationState state, UserIntent intent, String instruction) {
+        Question question = state.getLastQuestion();
+
+        TurnHandler entryHandler = entryHandlers[question.ordinal()];
+        if (entryHandler != null) {
+            String response = entryHandler.handle(state, instruction);
+            if (response != null) return response;
+        }
+
+        return transitions[question.ordinal()][intent.ordinal()].handle(state, instruction);
+    }
+
+    /**
+     * @return true if the definition has a line for exactly this question and intent, i.e. the
+     * question is waiting for that kind of answer
+     */
+    public boolean expects(Question question, UserIntent intent) {
+        return isExplicit[question.ordinal()][intent.ordinal()];
+    }
+
+    public boolean hasEntryHandler(Question question) {
+        return entryHandlers[question.ordinal()] != null;
+    }
+}
@@ -0,0 +1,10 @@
+package com.inDrive.plugin.dialogue;
+
+/**
+ * Receives the messages the dialogue engine produces outside of a user turn.
+ */
+public interface EventPublisher {
+    void publishAnnouncement(Announcement announcement);
+
+    void publishDestinationReached(Announcement announcement);
+}
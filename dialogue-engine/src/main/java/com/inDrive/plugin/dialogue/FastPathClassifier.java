@@ -0,0 +1,173 @@
+package com.inDrive.plugin.dialogue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+
+/**
+ * Classifies short answers ("yes", "no", "stop", "five stars") without running the NLP pipeline.
+ * The phrases of dialogue/fast_path.txt are compiled into an Aho-Corasick automaton over
+ * normalized tokens, stored as a dense transition table, so classifying is one table lookup per
+ * token. An utterance is classified only if its phrases cover every token and agree on a single
+ * intent; otherwise the caller should fall back to the full pipeline.
+ */
+public class FastPathClassifier {
+    public static final String DEFAULT_DEFINITION = "/dialogue/fast_path.txt";
+
+    private static final String FILLER = "FILLER";
+    private static final int NO_INTENT = -1;
+
+    private Map<String, Integer> vocabulary;
+    private int[][] transitions;
+    // Per state: pairs of (intent ordinal or NO_INTENT, phrase length) ending in that state.
+    private int[][] outputs;
+
+    private FastPathClassifier(Map<String, Integer> vocabulary, int[][] transitions, int[][] outputs) {
+        this.vocabulary = vocabulary;
+        this.transitions = transitions;
+        this.outputs = outputs;
+    }
+
+    public static FastPathClassifier loadDefault() throws IOException {
+        try (InputStream is = FastPathClassifier.class.getResourceAsStream(DEFAULT_DEFINITION)) {
+            if (is == null)
+                throw new IOException("Missing fast path definition " + DEFAULT_DEFINITION);
+            return load(is);
+        }
+    }
+
+    public static FastPathClassifier load(InputStream definition) throws IOException {
+        Map<String, Integer> vocabulary = new HashMap<>();
+        List<Map<Integer, Integer>> trie = new ArrayList<>();
+        List<List<int[]>> matches = new ArrayList<>();
+        trie.add(new HashMap<>());
+        matches.add(new ArrayList<>());
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(definition, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] parts = line.split("\\s+", 2);
+            String[] phrase = parts.length == 2 ? normalize(parts[1]) : new String[0];
+            if (phrase.length == 0)
+                throw new IllegalArgumentException(String.format("Line %d: expected <intent> <phrase>", lineNumber));
+
+            int intent;
+            try {
+                intent = FILLER.equals(parts[0]) ? NO_INTENT : UserIntent.valueOf(parts[0]).ordinal();
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException(String.format("Line %d: %s", lineNumber, ex.getMessage()), ex);
+            }
+
+            int state = 0;
+            for (String token : phrase) {
+                Integer id = vocabulary.get(token);
+                if (id == null) {
+                    id = vocabulary.size();
+                    vocabulary.put(token, id);
+                }
+                Integer next = trie.get(state).get(id);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new HashMap<>());
+                    matches.add(new ArrayList<>());
+                    trie.get(state).put(id, next);
+                }
+                state = next;
+            }
+            matches.get(state).add(new int[] { intent, phrase.length });
+        }
+
+        // Breadth first over the trie: fold failure links into a dense transition table and
+        // inherit the matches of each state's longest proper suffix.
+        int states = trie.size();
+        int[][] transitions = new int[states][vocabulary.size()];
+        int[] failure = new int[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int id = 0; id < vocabulary.size(); id++) {
+            Integer next = trie.get(0).get(id);
+            if (next != null) {
+                transitions[0][id] = next;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            matches.get(state).addAll(matches.get(failure[state]));
+            for (int id = 0; id < vocabulary.size(); id++) {
+                Integer next = trie.get(state).get(id);
+                if (next != null) {
+                    failure[next] = transitions[failure[state]][id];
+                    transitions[state][id] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state][id] = transitions[failure[state]][id];
+                }
+            }
+        }
+
+        int[][] outputs = new int[states][];
+        for (int state = 0; state < states; state++) {
+            List<int[]> stateMatches = matches.get(state);
+            outputs[state] = new int[stateMatches.size() * 2];
+            for (int i = 0; i < stateMatches.size(); i++) {
+                outputs[state][2 * i] = stateMatches.get(i)[0];
+                outputs[state][2 * i + 1] = stateMatches.get(i)[1];
+            }
+        }
+
+        return new FastPathClassifier(vocabulary, transitions, outputs);
+    }
+
+    public Optional<UserIntent> classify(String input) {
+        return classify(normalize(input));
+    }
+
+    public Optional<UserIntent> classify(String[] tokens) {
+        if (tokens.length == 0) return Optional.empty();
+
+        boolean[] covered = new boolean[tokens.length];
+        int intent = NO_INTENT;
+        int state = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            Integer id = vocabulary.get(tokens[i]);
+            if (id == null) return Optional.empty();
+            state = transitions[state][id];
+
+            int[] output = outputs[state];
+            for (int j = 0; j < output.length; j += 2) {
+                int matchedIntent = output[j];
+                if (matchedIntent != NO_INTENT) {
+                    if (intent != NO_INTENT && intent != matchedIntent) return Optional.empty();
+                    intent = matchedIntent;
+                }
+                Arrays.fill(covered, i - output[j + 1] + 1, i + 1, true);
+            }
+        }
+
+        if (intent == NO_INTENT) return Optional.empty();
+        for (boolean isCovered : covered) {
+            if (!isCovered) return Optional.empty();
+        }
+        return Optional.of(UserIntent.values()[intent]);
+    }
+
+    static String[] normalize(String input) {
+        String normalized = input.toLowerCase().replace("'", "").replaceAll("[^a-z0-9]+", " ").trim();
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+}
@@ -0,0 +1,213 @@
+package com.inDrive.plugin.dialogue;
+
+import com.inDrive.plugin.model.Location;
+import com.inDrive.plugin.model.LocationCoordinate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Per rider favourite places ("home", "office") and recently confirmed pickups and drops, so
+ * "take me home" or a drop the rider used last week resolves without a geocode call. Places are
+ * kept in memory, indexed by rider, and persisted to an append-only log with one tab separated
+ * record per line: {@code <rider> <label> <latitude> <longitude> <name>}. Later records win, and
+ * the log is rewritten with only the live records when it is opened with too many stale ones.
+ * <p>
+ * Returned locations are shared between callers and must not be modified.
+ */
+public class FavouritePlaces {
+    public static final String HOME = "home";
+    public static final String OFFICE = "office";
+    private static final String RECENT = "recent";
+
+    public static final int MAX_RECENT_PLACES = 10;
+
+    // Words riders use for their labelled places.
+    private static final Map<String, String> LABEL_WORDS = Map.of(
+            "home", HOME,
+            "house", HOME,
+            "office", OFFICE,
+            "work", OFFICE
+    );
+
+    private File log;
+    private Writer writer;
+    private Map<String, RiderPlaces> placesByRider = new HashMap<>();
+    private int records;
+
+    /**
+     * Create a store that is not persisted.
+     */
+    public FavouritePlaces() {
+    }
+
+    /**
+     * Load the places recorded in {@code log}, which is created if it does not exist.
+     */
+    public FavouritePlaces(File log) throws IOException {
+        this.log = log;
+        if (log.exists()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(log), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // A torn last line from a crash mid-append is skipped.
+                    String[] fields = line.split("\t", 5);
+                    if (fields.length != 5) continue;
+                    try {
+                        Location location = new Location(fields[4], new LocationCoordinate(
+                                Double.parseDouble(fields[2]), Double.parseDouble(fields[3])));
+                        apply(fields[0], fields[1], location);
+                        records++;
+                    } catch (NumberFormatException ex) {
+                        System.out.println("Skipping favourite place record: " + line);
+                    }
+                }
+            }
+        }
+
+        if (records > 2 * liveRecords() + 64)
+            compact();
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(log, true), StandardCharsets.UTF_8));
+        // Terminate a torn last line, so the next record does not run into it.
+        if (endsMidLine(log)) {
+            writer.write('\n');
+            writer.flush();
+        }
+    }
+
+    /**
+     * @return the label ({@link #HOME}, {@link #OFFICE}) a word refers to, if any
+     */
+    public static Optional<String> labelOf(String word) {
+        return Optional.ofNullable(LABEL_WORDS.get(word.toLowerCase()));
+    }
+
+    public synchronized Optional<Location> getLabelledPlace(String riderId, String label) {
+        RiderPlaces places = placesByRider.get(riderId);
+        return places == null ? Optional.empty() : Optional.ofNullable(places.labelled.get(label));
+    }
+
+    /**
+     * @return the most recent pickup or drop of the rider whose name starts with the spoken name
+     */
+    public synchronized Optional<Location> findRecentPlace(String riderId, String spokenName) {
+        RiderPlaces places = placesByRider.get(riderId);
+        String key = PlaceIndex.key(spokenName);
+        if (places == null || key.isEmpty()) return Optional.empty();
+
+        Location found = null;
+        for (Map.Entry<String, Location> recent : places.recent.entrySet()) {
+            if (recent.getKey().startsWith(key))
+                found = recent.getValue();
+        }
+        return Optional.ofNullable(found);
+    }
+
+    public synchronized void setLabelledPlace(String riderId, String label, Location location) throws IOException {
+        if (location == null || location.getLocationCoordinates() == null) return;
+        append(riderId, label, location);
+    }
+
+    public synchronized void addRecentPlace(String riderId, Location location) throws IOException {
+        if (location == null || location.getLocationCoordinates() == null) return;
+        RiderPlaces places = placesByRider.get(riderId);
+        // Riders go back to the same places; only new ones are logged.
+        Location known = places == null ? null : places.recent.get(PlaceIndex.key(location.getLocationName()));
+        if (known != null && isSamePlace(known, location)) return;
+        append(riderId, RECENT, location);
+    }
+
+    public synchronized void close() throws IOException {
+        if (writer != null) writer.close();
+    }
+
+    private void append(String riderId, String label, Location location) throws IOException {
+        apply(riderId, label, location);
+        if (writer == null) return;
+        writer.write(record(riderId, label, location));
+        writer.flush();
+        records++;
+    }
+
+    private void apply(String riderId, String label, Location location) {
+        RiderPlaces places = placesByRider.computeIfAbsent(riderId, id -> new RiderPlaces());
+        if (RECENT.equals(label)) {
+            String key = PlaceIndex.key(location.getLocationName());
+            places.recent.remove(key);
+            places.recent.put(key, location);
+        } else {
+            places.labelled.put(label, location);
+        }
+    }
+
+    private int liveRecords() {
+        int live = 0;
+        for (RiderPlaces places : placesByRider.values())
+            live += places.labelled.size() + places.recent.size();
+        return live;
+    }
+
+    private void compact() throws IOException {
+        File compacted = new File(log.getPath() + ".tmp");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(compacted), StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, RiderPlaces> rider : placesByRider.entrySet()) {
+                for (Map.Entry<String, Location> labelled : rider.getValue().labelled.entrySet())
+                    out.write(record(rider.getKey(), labelled.getKey(), labelled.getValue()));
+                for (Location recent : rider.getValue().recent.values())
+                    out.write(record(rider.getKey(), RECENT, recent));
+            }
+        }
+        Files.move(compacted.toPath(), log.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        records = liveRecords();
+    }
+
+    private static boolean isSamePlace(Location a, Location b) {
+        return a.getLocationCoordinates().getLatitude() == b.getLocationCoordinates().getLatitude()
+                && a.getLocationCoordinates().getLongitude() == b.getLocationCoordinates().getLongitude();
+    }
+
+    private static boolean endsMidLine(File file) throws IOException {
+        if (file.length() == 0) return false;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.seek(file.length() - 1);
+            return in.read() != '\n';
+        }
+    }
+
+    private static String record(String riderId, String label, Location location) {
+        return clean(riderId) + '\t' + label + '\t'
+                + location.getLocationCoordinates().getLatitude() + '\t'
+                + location.getLocationCoordinates().getLongitude() + '\t'
+                + clean(location.getLocationName()) + '\n';
+    }
+
+    private static String clean(String field) {
+        return field.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static class RiderPlaces {
+        private Map<String, Location> labelled = new HashMap<>(4);
+        // Keyed by place name, oldest first.
+        private LinkedHashMap<String, Location> recent = new LinkedHashMap<String, Location>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Location> eldest) {
+                return size() > MAX_RECENT_PLACES;
+            }
+        };
+    }
+}
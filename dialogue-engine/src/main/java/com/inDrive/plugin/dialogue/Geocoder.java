@@ -0,0 +1,41 @@
+package com.inDrive.plugin.dialogue;
+
+import com.inDrive.plugin.model.Location;
+import com.inDrive.plugin.model.LocationCoordinate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public interface Geocoder {
+    Optional<Location> getCurrentLocation();
+
+    Optional<Location> getLocation(String place);
+
+    Optional<Location> getLocation(double latitude, double longitude);
+
+    /**
+     * Geocode several places at once. Implementations talking to a remote service should send
+     * the queries concurrently, so the batch costs about one round trip.
+     *
+     * @return the location of each place, in the order of {@code places}
+     */
+    default List<Optional<Location>> getLocations(List<String> places) {
+        List<Optional<Location>> locations = new ArrayList<>(places.size());
+        for (String place : places)
+            locations.add(getLocation(place));
+        return locations;
+    }
+
+    /**
+     * Reverse geocode several points at once, see {@link #getLocations(List)}.
+     *
+     * @return the location at each point, in the order of {@code points}
+     */
+    default List<Optional<Location>> getLocationsAt(List<LocationCoordinate> points) {
+        List<Optional<Location>> locations = new ArrayList<>(points.size());
+        for (LocationCoordinate point : points)
+            locations.add(getLocation(point.getLatitude(), point.getLongitude()));
+        return locations;
+    }
+}
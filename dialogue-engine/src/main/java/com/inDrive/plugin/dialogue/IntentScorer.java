@@ -0,0 +1,128 @@
+package com.inDrive.plugin.dialogue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Scores intents by combining the categorizer probabilities of an utterance with the prior
+ * odds of each intent given the question the rider is answering (see dialogue/intent_priors.txt).
+ * A yes/no question makes "yes" and "no" far more likely than the text alone suggests, which
+ * resolves most misread short replies without asking the rider to repeat.
+ */
+public class IntentScorer {
+    public static final String DEFAULT_PRIORS = "/dialogue/intent_priors.txt";
+    public static final double DEFAULT_CONFIDENCE_THRESHOLD = 0.1;
+    public static final int DEFAULT_TOP_K = 3;
+
+    private double[][] priors;
+    private double confidenceThreshold;
+
+    public IntentScorer(double[][] priors, double confidenceThreshold) {
+        this.priors = priors;
+        this.confidenceThreshold = confidenceThreshold;
+    }
+
+    public static IntentScorer loadDefault(double confidenceThreshold) throws IOException {
+        try (InputStream is = IntentScorer.class.getResourceAsStream(DEFAULT_PRIORS)) {
+            if (is == null)
+                throw new IOException("Missing intent priors " + DEFAULT_PRIORS);
+            return new IntentScorer(loadPriors(is), confidenceThreshold);
+        }
+    }
+
+    /**
+     * @return weights indexed by {@link Question} and {@link UserIntent} ordinals
+     */
+    public static double[][] loadPriors(InputStream definition) throws IOException {
+        double[][] priors = new double[Question.values().length][UserIntent.values().length];
+        for (double[] row : priors)
+            Arrays.fill(row, 1.0);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(definition, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] parts = line.split("\\s+");
+            if (parts.length != 3)
+                throw new IllegalArgumentException(String.format("Line %d: expected <question> <intent> <weight>", lineNumber));
+            try {
+                double weight = Double.parseDouble(parts[2]);
+                if (weight <= 0)
+                    throw new IllegalArgumentException("weight must be positive");
+                priors[Question.valueOf(parts[0]).ordinal()][UserIntent.valueOf(parts[1]).ordinal()] = weight;
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException(String.format("Line %d: %s", lineNumber, ex.getMessage()), ex);
+            }
+        }
+        return priors;
+    }
+
+    public double getConfidenceThreshold() {
+        return confidenceThreshold;
+    }
+
+    /**
+     * @param probabilities categorizer output for the utterance
+     * @param categories category of each probability
+     * @param question the question the utterance answers
+     * @return the k best intents, best first, with scores summing to at most 1
+     */
+    public List<ScoredIntent> score(double[] probabilities, String[] categories, Question question, int k) {
+        return score(new double[][] { probabilities }, new String[][] { categories }, new double[] { 1.0 }, question, k);
+    }
+
+    /**
+     * Score alternative transcriptions of one utterance together: the categorizer
+     * probabilities of each hypothesis are weighted by the recognizer's confidence in it before
+     * the question priors are applied.
+     *
+     * @param weights confidence of each hypothesis, summing to 1
+     */
+    public List<ScoredIntent> score(double[][] probabilities, String[][] categories, double[] weights,
+                                    Question question, int k) {
+        double[] prior = priors[question.ordinal()];
+        double[] scores = new double[UserIntent.values().length];
+        double total = 0;
+        for (int h = 0; h < probabilities.length; h++) {
+            for (int i = 0; i < probabilities[h].length; i++) {
+                UserIntent intent = UserIntent.fromCategory(categories[h][i]);
+                double score = weights[h] * probabilities[h][i] * prior[intent.ordinal()];
+                scores[intent.ordinal()] += score;
+                total += score;
+            }
+        }
+
+        List<ScoredIntent> topIntents = new ArrayList<>(k);
+        for (int n = 0; n < k; n++) {
+            int best = -1;
+            for (int i = 0; i < scores.length; i++) {
+                if (scores[i] > 0 && (best < 0 || scores[i] > scores[best]))
+                    best = i;
+            }
+            if (best < 0) break;
+            topIntents.add(new ScoredIntent(UserIntent.values()[best], total > 0 ? scores[best] / total : 0));
+            scores[best] = 0;
+        }
+        return topIntents;
+    }
+
+    /**
+     * @return the best intent, or {@link UserIntent#UNKNOWN} if it scored below the confidence
+     * threshold and the rider should be asked to repeat
+     */
+    public UserIntent bestIntent(List<ScoredIntent> topIntents) {
+        if (topIntents.isEmpty() || topIntents.get(0).getScore() < confidenceThreshold)
+            return UserIntent.UNKNOWN;
+        return topIntents.get(0).getIntent();
+    }
+}
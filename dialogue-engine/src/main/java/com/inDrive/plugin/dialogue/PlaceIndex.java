@@ -0,0 +1,235 @@
+package com.inDrive.plugin.dialogue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Maps noisy spoken place names ("Kothrood", "Koregaon park", "shivaji nagar") to a canonical
+ * place name, so spelling variants from speech recognition resolve to the same place. Phrases
+ * are keyed by their lower case letters and digits only, which also absorbs words the recognizer
+ * splits or joins. Lookups use a symmetric delete index (as in SymSpell): every key is stored
+ * under all its variants with up to {@code maxEditDistance} characters deleted, so candidates are
+ * found by hashing the deletes of the query instead of comparing it against every place. Short
+ * keys tolerate fewer edits, since "Aundh" is one edit away from far too many words.
+ * <p>
+ * The index starts with the known places of dialogue/places.txt and learns the places riders
+ * actually ask for through {@link #add(String, String)}; learned names are forgotten again with
+ * {@link #remove(String)}, so whoever adds them keeps the index bounded.
+ */
+public class PlaceIndex {
+    public static final String DEFAULT_PLACES = "/dialogue/places.txt";
+    public static final int DEFAULT_MAX_EDIT_DISTANCE = 2;
+
+    private int maxEditDistance;
+    private Map<String, String> canonicalByKey = new HashMap<>();
+    private Map<String, Integer> usesByKey = new HashMap<>();
+    private Map<String, List<String>> keysByDelete = new HashMap<>();
+    private ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public PlaceIndex(int maxEditDistance) {
+        this.maxEditDistance = maxEditDistance;
+    }
+
+    public static PlaceIndex loadDefault() throws IOException {
+        try (InputStream is = PlaceIndex.class.getResourceAsStream(DEFAULT_PLACES)) {
+            if (is == null)
+                throw new IOException("Missing place list " + DEFAULT_PLACES);
+            return load(is, DEFAULT_MAX_EDIT_DISTANCE);
+        }
+    }
+
+    /**
+     * Read places, one per line: the canonical name followed by its aliases, separated by "|".
+     */
+    public static PlaceIndex load(InputStream definition, int maxEditDistance) throws IOException {
+        PlaceIndex index = new PlaceIndex(maxEditDistance);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(definition, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] names = line.split("\\|");
+            String canonical = names[0].trim();
+            for (String name : names) {
+                if (key(name).isEmpty())
+                    throw new IllegalArgumentException(String.format("Line %d: expected <place> [| <alias>]...", lineNumber));
+                index.add(name, canonical);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Register {@code phrase} as a name of the place {@code canonical}. Adding a phrase again
+     * counts as another use, which wins ties between equally close places.
+     */
+    public void add(String phrase, String canonical) {
+        String key = key(phrase);
+        if (key.isEmpty()) return;
+
+        lock.writeLock().lock();
+        try {
+            usesByKey.merge(key, 1, Integer::sum);
+            if (canonicalByKey.put(key, canonical) != null) return;
+            for (String delete : deletes(key, allowedEditDistance(key)))
+                keysByDelete.computeIfAbsent(delete, d -> new ArrayList<>(1)).add(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forget the place name {@code phrase}, e.g. a learned one that is no longer cached.
+     */
+    public void remove(String phrase) {
+        String key = key(phrase);
+        lock.writeLock().lock();
+        try {
+            usesByKey.remove(key);
+            if (canonicalByKey.remove(key) == null) return;
+            for (String delete : deletes(key, allowedEditDistance(key))) {
+                keysByDelete.computeIfPresent(delete, (d, keys) -> {
+                    keys.remove(key);
+                    return keys.isEmpty() ? null : keys;
+                });
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the canonical name of the closest known place, if one is close enough
+     */
+    public Optional<String> lookup(String phrase) {
+        String key = key(phrase);
+        if (key.isEmpty()) return Optional.empty();
+        int allowed = allowedEditDistance(key);
+
+        lock.readLock().lock();
+        try {
+            String exact = canonicalByKey.get(key);
+            if (exact != null || allowed == 0) return Optional.ofNullable(exact);
+
+            String best = null;
+            int bestDistance = allowed + 1;
+            int bestUses = 0;
+            Set<String> seen = new HashSet<>();
+            for (String delete : deletes(key, allowed)) {
+                List<String> candidates = keysByDelete.get(delete);
+                if (candidates == null) continue;
+                for (String candidate : candidates) {
+                    if (!seen.add(candidate)) continue;
+                    if (Math.abs(candidate.length() - key.length()) > allowed) continue;
+                    // The candidate has to be allowed to be this far off too.
+                    int limit = Math.min(allowed, allowedEditDistance(candidate));
+                    int distance = editDistance(key, candidate, limit);
+                    if (distance > limit) continue;
+                    int uses = usesByKey.get(candidate);
+                    if (distance < bestDistance || (distance == bestDistance && uses > bestUses)) {
+                        best = candidate;
+                        bestDistance = distance;
+                        bestUses = uses;
+                    }
+                }
+            }
+            return best == null ? Optional.empty() : Optional.of(canonicalByKey.get(best));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return canonicalByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String key(String phrase) {
+        StringBuilder key = new StringBuilder(phrase.length());
+        String lower = phrase.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) key.append(c);
+        }
+        return key.toString();
+    }
+
+    private int allowedEditDistance(String key) {
+        if (key.length() < 4) return 0;
+        if (key.length() < 6) return Math.min(1, maxEditDistance);
+        return maxEditDistance;
+    }
+
+    /**
+     * @return {@code key} with every combination of up to {@code distance} characters deleted,
+     * including {@code key} itself
+     */
+    private static Set<String> deletes(String key, int distance) {
+        Set<String> deletes = new HashSet<>();
+        deletes.add(key);
+        List<String> frontier = List.of(key);
+        for (int d = 0; d < distance; d++) {
+            List<String> next = new ArrayList<>();
+            for (String word : frontier) {
+                if (word.length() <= 1) continue;
+                for (int i = 0; i < word.length(); i++) {
+                    String delete = word.substring(0, i) + word.substring(i + 1);
+                    if (deletes.add(delete)) next.add(delete);
+                }
+            }
+            frontier = next;
+        }
+        return deletes;
+    }
+
+    /**
+     * Optimal string alignment distance (edits plus adjacent transpositions), or
+     * {@code limit + 1} once it is certain to exceed {@code limit}.
+     */
+    static int editDistance(String a, String b, int limit) {
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++)
+            previous[j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMinimum = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1))
+                    distance = Math.min(distance, previous2[j - 2] + 1);
+                current[j] = distance;
+                rowMinimum = Math.min(rowMinimum, distance);
+            }
+            if (rowMinimum > limit) return limit + 1;
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], limit + 1);
+    }
+}
@@ -0,0 +1,5 @@
+package com.inDrive.plugin.dialogue;
+
+public enum Question {
+    NULL, GREETING, CONFIRM_SRC_DEST, USE_CURRENT_LOCATION, SPECIFY_DEST, CONFIRM_DEST, UPDATE_DEST_QUESTION, SPECIFY_SOURCE, CONFIRM_SOURCE, SURE_CANCEL, UPDATE_SOURCE_QUESTION
+}
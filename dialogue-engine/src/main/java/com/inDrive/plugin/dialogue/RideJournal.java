@@ -0,0 +1,373 @@
+package com.inDrive.plugin.dialogue;
+
+import com.inDrive.plugin.model.Driver;
+import com.inDrive.plugin.model.Location;
+import com.inDrive.plugin.model.LocationCoordinate;
+import com.inDrive.plugin.model.Passenger;
+import com.inDrive.plugin.model.Ride;
+import com.inDrive.plugin.model.RideSnapshot;
+import com.inDrive.plugin.model.RideStatus;
+import com.inDrive.plugin.model.Vehicle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of a {@link Ride}'s changes, so a ride in progress survives the process
+ * being killed. Attached as a {@link Ride.Listener}, it records every change as a delta of the
+ * fields that changed. Records are length prefixed and checksummed:
+ * {@code <length> <crc32> <type> <version> <fields>}.
+ * <p>
+ * Appending only copies the record into a buffer. A background thread writes the buffer through
+ * a {@link FileChannel} and forces it to disk every {@link #FLUSH_INTERVAL_MILLIS}, so a crash
+ * loses at most the changes of that interval and turns never wait for the disk. Every
+ * {@link #SNAPSHOT_INTERVAL} deltas the journal is replaced by one snapshot record of the current
+ * ride, so recovery replays at most that many records however long the ride has been going.
+ * On open, a torn or corrupt record at the end is cut off and replay stops before it.
+ */
+public class RideJournal implements Ride.Listener {
+    public static final int SNAPSHOT_INTERVAL = 64;
+    public static final long FLUSH_INTERVAL_MILLIS = 100;
+
+    private static final byte SNAPSHOT = 1;
+    private static final byte DELTA = 2;
+    private static final int HEADER_BYTES = 8;
+
+    // Delta field bits.
+    private static final int PASSENGER = 1;
+    private static final int DRIVER = 1 << 1;
+    private static final int SOURCE = 1 << 2;
+    private static final int DESTINATION = 1 << 3;
+    private static final int TIME_FOR_DRIVER = 1 << 4;
+    private static final int TIME_TO_REACH = 1 << 5;
+    private static final int OTP = 1 << 6;
+    private static final int STATUS = 1 << 7;
+
+    private File file;
+    private FileChannel channel;
+    private ScheduledExecutorService flusher;
+    private final Object flushLock = new Object();
+
+    private RideSnapshot recovered;
+    // Last change recorded, and the records not yet written.
+    private RideSnapshot last;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private int deltasSinceSnapshot;
+
+    /**
+     * Open the journal in {@code file}, which is created if it does not exist, and recover the
+     * ride recorded in it.
+     */
+    public RideJournal(File file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long end = replay();
+        if (end < channel.size()) {
+            System.out.println("Ride journal: dropping " + (channel.size() - end) + " bytes of a torn record");
+            channel.truncate(end);
+        }
+        channel.position(end);
+        last = recovered;
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ride-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (IOException ex) {
+                System.out.println("Could not write ride journal: " + ex.getMessage());
+            }
+        }, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the ride as of the last record that reached the disk, if any
+     */
+    public Optional<RideSnapshot> getRecoveredRide() {
+        return Optional.ofNullable(recovered);
+    }
+
+    /**
+     * Journal the changes of {@code ride} from now on, starting with a snapshot of it.
+     */
+    public synchronized void attach(Ride ride) {
+        last = null;
+        ride.addListener(this);
+        record(ride.getSnapshot());
+    }
+
+    @Override
+    public void rideChanged(RideSnapshot previous, RideSnapshot current) {
+        record(current);
+    }
+
+    /**
+     * Record the ride as of {@code snapshot}. Snapshots no newer than the last one recorded are
+     * ignored; the newer one already includes their changes.
+     */
+    public synchronized void record(RideSnapshot snapshot) {
+        if (last != null && snapshot.getVersion() <= last.getVersion()) return;
+
+        try {
+            if (last == null) {
+                appendRecord(pending, SNAPSHOT, snapshot, ~0);
+            } else {
+                appendRecord(pending, DELTA, snapshot, changedFields(last, snapshot));
+                deltasSinceSnapshot++;
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        last = snapshot;
+    }
+
+    /**
+     * Write and force the records appended so far, or replace the journal with a snapshot if
+     * enough deltas have piled up.
+     */
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            byte[] records;
+            RideSnapshot snapshot = null;
+            synchronized (this) {
+                if (deltasSinceSnapshot >= SNAPSHOT_INTERVAL) {
+                    snapshot = last;
+                    deltasSinceSnapshot = 0;
+                    records = null;
+                } else {
+                    if (pending.size() == 0) return;
+                    records = pending.toByteArray();
+                }
+                pending.reset();
+            }
+
+            if (snapshot != null) {
+                compact(snapshot);
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(records);
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Write what is pending and stop the flushing thread.
+     */
+    public void close() throws IOException {
+        flusher.shutdownNow();
+        flush();
+        channel.close();
+    }
+
+    /**
+     * Replace the journal with one snapshot record. Should that fail, the record is appended to
+     * the journal in place instead, which replays to the same ride.
+     */
+    private void compact(RideSnapshot snapshot) throws IOException {
+        File compacted = new File(file.getPath() + ".tmp");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        appendRecord(out, SNAPSHOT, snapshot, ~0);
+        boolean replaced = false;
+        try {
+            try (FileChannel compactedChannel = FileChannel.open(compacted.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+                while (buffer.hasRemaining())
+                    compactedChannel.write(buffer);
+                compactedChannel.force(false);
+            }
+            channel.close();
+            Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            replaced = true;
+        } catch (IOException ex) {
+            System.out.println("Could not compact ride journal, appending the snapshot instead: " + ex.getMessage());
+        } finally {
+            // The compacted journal if the move went through, the original one otherwise.
+            if (!channel.isOpen()) {
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+            }
+        }
+        if (replaced) return;
+
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        channel.force(false);
+    }
+
+    /**
+     * Replay the journal into {@link #recovered}.
+     *
+     * @return the end of the last intact record
+     */
+    private long replay() throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        long position = 0;
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || position + HEADER_BYTES + length > size) break;
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            channel.read(payload, position + HEADER_BYTES);
+            if (crc(payload.array()) != checksum) break;
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()));
+            byte type = in.readByte();
+            if (type != SNAPSHOT && (type != DELTA || recovered == null)) break;
+            recovered = readFields(in, type == SNAPSHOT ? null : recovered);
+            deltasSinceSnapshot = type == SNAPSHOT ? 0 : deltasSinceSnapshot + 1;
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private static void appendRecord(ByteArrayOutputStream out, byte type, RideSnapshot snapshot, int fields)
+            throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(128);
+        DataOutputStream data = new DataOutputStream(payload);
+        data.writeByte(type);
+        data.writeLong(snapshot.getVersion());
+        data.writeByte(fields);
+        if ((fields & PASSENGER) != 0) {
+            Passenger passenger = snapshot.getPassenger();
+            data.writeBoolean(passenger != null);
+            if (passenger != null) {
+                writeString(data, passenger.getPassengerName());
+                writeString(data, passenger.getPassengerContact());
+            }
+        }
+        if ((fields & DRIVER) != 0) {
+            Driver driver = snapshot.getDriver();
+            data.writeBoolean(driver != null);
+            if (driver != null) {
+                writeString(data, driver.getDriverName());
+                writeString(data, driver.getDriverContact());
+                data.writeInt(driver.getStars());
+                Vehicle vehicle = driver.getVehicle();
+                data.writeBoolean(vehicle != null);
+                if (vehicle != null) {
+                    writeString(data, vehicle.getVehicleNumber());
+                    writeString(data, vehicle.getVehicleType());
+                    writeString(data, vehicle.getVehicleModel());
+                }
+            }
+        }
+        if ((fields & SOURCE) != 0) writeLocation(data, snapshot.getSource());
+        if ((fields & DESTINATION) != 0) writeLocation(data, snapshot.getDestination());
+        if ((fields & TIME_FOR_DRIVER) != 0) data.writeInt(snapshot.getTimeInMinutesForDriver());
+        if ((fields & TIME_TO_REACH) != 0) data.writeInt(snapshot.getTimeInMinutesToReachDest());
+        if ((fields & OTP) != 0) writeString(data, snapshot.getOtp());
+        if ((fields & STATUS) != 0) data.writeByte(snapshot.getRideStatus().ordinal());
+        data.flush();
+
+        byte[] bytes = payload.toByteArray();
+        DataOutputStream record = new DataOutputStream(out);
+        record.writeInt(bytes.length);
+        record.writeInt(crc(bytes));
+        record.write(bytes);
+        record.flush();
+    }
+
+    private static RideSnapshot readFields(DataInputStream in, RideSnapshot previous) throws IOException {
+        long version = in.readLong();
+        int fields = in.readByte() & 0xff;
+        RideSnapshot snapshot = previous != null
+                ? previous
+                : new RideSnapshot(null, null, null, null, 0, 0, null, RideStatus.NOT_BOOKED, 0, 0);
+
+        if ((fields & PASSENGER) != 0)
+            snapshot = snapshot.withPassenger(in.readBoolean() ? new Passenger(readString(in), readString(in)) : null);
+        if ((fields & DRIVER) != 0) {
+            Driver driver = null;
+            if (in.readBoolean()) {
+                String name = readString(in);
+                String contact = readString(in);
+                int stars = in.readInt();
+                Vehicle vehicle = in.readBoolean() ? new Vehicle(readString(in), readString(in), readString(in)) : null;
+                driver = new Driver(name, vehicle, contact, stars);
+            }
+            snapshot = snapshot.withDriver(driver);
+        }
+        if ((fields & SOURCE) != 0) snapshot = snapshot.withSource(readLocation(in));
+        if ((fields & DESTINATION) != 0) snapshot = snapshot.withDestination(readLocation(in));
+        if ((fields & TIME_FOR_DRIVER) != 0) snapshot = snapshot.withTimeInMinutesForDriver(in.readInt());
+        if ((fields & TIME_TO_REACH) != 0) snapshot = snapshot.withTimeInMinutesToReachDest(in.readInt());
+        if ((fields & OTP) != 0) snapshot = snapshot.withOtp(readString(in));
+        if ((fields & STATUS) != 0) snapshot = snapshot.withRideStatus(RideStatus.values()[in.readByte()]);
+        return snapshot.withVersion(version);
+    }
+
+    // Snapshots share unchanged fields with the one they replaced, so changed fields are the
+    // ones with a different reference.
+    private static int changedFields(RideSnapshot previous, RideSnapshot current) {
+        int fields = 0;
+        if (previous.getPassenger() != current.getPassenger()) fields |= PASSENGER;
+        if (previous.getDriver() != current.getDriver()) fields |= DRIVER;
+        if (previous.getSource() != current.getSource()) fields |= SOURCE;
+        if (previous.getDestination() != current.getDestination()) fields |= DESTINATION;
+        if (previous.getTimeInMinutesForDriver() != current.getTimeInMinutesForDriver()) fields |= TIME_FOR_DRIVER;
+        if (previous.getTimeInMinutesToReachDest() != current.getTimeInMinutesToReachDest()) fields |= TIME_TO_REACH;
+        if (previous.getOtp() != current.getOtp()) fields |= OTP;
+        if (previous.getRideStatus() != current.getRideStatus()) fields |= STATUS;
+        return fields;
+    }
+
+    private static void writeLocation(DataOutputStream data, Location location) throws IOException {
+        data.writeBoolean(location != null);
+        if (location == null) return;
+        writeString(data, location.getLocationName());
+        LocationCoordinate coordinate = location.getLocationCoordinates();
+        data.writeBoolean(coordinate != null);
+        if (coordinate != null) {
+            data.writeDouble(coordinate.getLatitude());
+            data.writeDouble(coordinate.getLongitude());
+        }
+    }
+
+    private static Location readLocation(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        String name = readString(in);
+        LocationCoordinate coordinate = in.readBoolean() ? new LocationCoordinate(in.readDouble(), in.readDouble()) : null;
+        return new Location(name, coordinate);
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) data.writeUTF(value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+}
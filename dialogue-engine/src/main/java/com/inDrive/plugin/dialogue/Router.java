@@ -0,0 +1,26 @@
+package com.inDrive.plugin.dialogue;
+
+import com.inDrive.plugin.model.Location;
+import com.inDrive.plugin.model.LocationCoordinate;
+import com.inDrive.plugin.model.Route;
+import com.inDrive.plugin.navigation.graphhopper.response.direction.DirectionResponse;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface Router {
+    Optional<DirectionResponse> getDirections(String from, String to);
+
+    /**
+     * Route between two known points, without geocoding.
+     */
+    Optional<DirectionResponse> getDirections(LocationCoordinate from, LocationCoordinate to);
+
+    /**
+     * Route through all stops in order, e.g. pickup, intermediate stops and drop, with one
+     * request. The stops are already resolved, so nothing is geocoded again.
+     *
+     * @param stops at least two locations
+     */
+    Optional<Route> getRoute(List<Location> stops);
+}
@@ -0,0 +1,16 @@
+package com.inDrive.plugin.dialogue;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ScoredIntent {
+    private UserIntent intent;
+    private double score;
+
+    @Override
+    public String toString() {
+        return String.format("%s(%.3f)", intent, score);
+    }
+}
@@ -0,0 +1,110 @@
+package com.inDrive.plugin.dialogue;
+
+import com.inDrive.plugin.model.Passenger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the {@link ConversationState} of every active rider. Sessions that have not been used
+ * for {@code idleTimeoutMillis} are evicted by a periodic sweep, and the number of sessions is
+ * capped at {@code maxSessions} by evicting the least recently used one. Every session that
+ * ends, evicted or not, is handed to the {@code onSessionEnded} callback, e.g. so the engine can
+ * release the driver it holds.
+ */
+public class SessionManager {
+    private Map<String, ConversationState> sessions = new ConcurrentHashMap<>();
+
+    private Clock clock;
+    private long idleTimeoutMillis;
+    private int maxSessions;
+    private Consumer<ConversationState> onSessionEnded;
+
+    private AtomicBoolean isEvictionScheduled = new AtomicBoolean(false);
+
+    public SessionManager(Clock clock, long idleTimeoutMillis, int maxSessions) {
+        this(clock, idleTimeoutMillis, maxSessions, state -> { });
+    }
+
+    /**
+     * @param onSessionEnded called with every session that ends or is evicted, e.g.
+     *                       {@link DialogueEngine#endConversation(ConversationState)}
+     */
+    public SessionManager(Clock clock, long idleTimeoutMillis, int maxSessions,
+                          Consumer<ConversationState> onSessionEnded) {
+        this.clock = clock;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxSessions = maxSessions;
+        this.onSessionEnded = onSessionEnded;
+    }
+
+    public ConversationState getSession(String riderId, Passenger passenger) {
+        ConversationState state = sessions.computeIfAbsent(riderId, id -> new ConversationState(passenger));
+        state.setLastAccessMillis(clock.currentTimeMillis());
+
+        if (sessions.size() > maxSessions)
+            evictLeastRecentlyUsed(riderId);
+        scheduleEviction();
+
+        return state;
+    }
+
+    public void endSession(String riderId) {
+        ConversationState state = sessions.remove(riderId);
+        if (state != null)
+            onSessionEnded.accept(state);
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * @return number of sessions evicted
+     */
+    public int evictIdleSessions() {
+        long now = clock.currentTimeMillis();
+        int evicted = 0;
+        for (Map.Entry<String, ConversationState> entry : sessions.entrySet()) {
+            if (now - entry.getValue().getLastAccessMillis() < idleTimeoutMillis) continue;
+
+            if (sessions.remove(entry.getKey(), entry.getValue())) {
+                onSessionEnded.accept(entry.getValue());
+                evicted++;
+            }
+        }
+
+        return evicted;
+    }
+
+    private void evictLeastRecentlyUsed(String keep) {
+        while (sessions.size() > maxSessions) {
+            String oldest = null;
+            long oldestAccess = Long.MAX_VALUE;
+            for (Map.Entry<String, ConversationState> entry : sessions.entrySet()) {
+                if (entry.getKey().equals(keep)) continue;
+                if (entry.getValue().getLastAccessMillis() < oldestAccess) {
+                    oldest = entry.getKey();
+                    oldestAccess = entry.getValue().getLastAccessMillis();
+                }
+            }
+
+            if (oldest == null) return;
+            ConversationState evicted = sessions.remove(oldest);
+            if (evicted != null)
+                onSessionEnded.accept(evicted);
+        }
+    }
+
+    private void scheduleEviction() {
+        if (!isEvictionScheduled.compareAndSet(false, true)) return;
+
+        clock.schedule(() -> {
+            evictIdleSessions();
+            isEvictionScheduled.set(false);
+            if (!sessions.isEmpty()) scheduleEviction();
+        }, idleTimeoutMillis);
+    }
+}
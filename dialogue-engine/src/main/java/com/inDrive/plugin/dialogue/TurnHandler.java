@@ -0,0 +1,8 @@
+package com.inDrive.plugin.dialogue;
+
+public interface TurnHandler {
+    /**
+     * @return the response to the rider, or null to let the next handler of the turn respond
+     */
+    String handle(ConversationState state, String instruction);
+}
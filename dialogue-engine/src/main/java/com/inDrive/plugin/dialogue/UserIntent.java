@@ -0,0 +1,53 @@
+package com.inDrive.plugin.dialogue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Intents the categorizer is trained on, keyed by their category name in faq_categorizer.txt.
+ */
+public enum UserIntent {
+    GREETING("greeting"),
+    BOOK_CAB_INSTR("book_cab_instruction"),
+    LOCATION_INQUIRY("location_inquiry"),
+    DRIVER_INQUIRY("driver_inquiry"),
+    VEHICLE_INQUIRY("vehicle_inquiry"),
+    TIME_FOR_DRIVER("time_for_driver"),
+    TIME_TO_REACH("time_to_reach"),
+    CHANGE_SOURCE("change_source"),
+    CHANGE_DESTINATION("change_destination"),
+    OTP_INQUIRY("otp_inquiry"),
+    START_RIDE("start_instruction"),
+    ALL_GOOD("all_okay"),
+    RATING("stars"),
+    AFFIRMATION("affirmation"),
+    NEGATION("negation"),
+    CALL_DRIVER("call_driver"),
+    STOP_PROCESS("stop_process"),
+    CANCEL_RIDE("cancel_ride"),
+    UNKNOWN(null);
+
+    private static final Map<String, UserIntent> BY_CATEGORY = new HashMap<>();
+
+    static {
+        for (UserIntent intent : values()) {
+            if (intent.category != null)
+                BY_CATEGORY.put(intent.category, intent);
+        }
+    }
+
+    private String category;
+
+    UserIntent(String category) {
+        this.category = category;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public static UserIntent fromCategory(String category) {
+        if (category == null) return UNKNOWN;
+        return BY_CATEGORY.getOrDefault(category, UNKNOWN);
+    }
+}
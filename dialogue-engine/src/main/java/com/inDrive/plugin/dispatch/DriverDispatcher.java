@@ -0,0 +1,208 @@
+package com.inDrive.plugin.dispatch;
+
+import com.inDrive.plugin.dialogue.Router;
+import com.inDrive.plugin.model.LocationCoordinate;
+import com.inDrive.plugin.model.Route;
+import com.inDrive.plugin.navigation.graphhopper.response.direction.DirectionResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Picks the driver who can reach a pickup soonest. The drivers closest in a straight line are
+ * shortlisted from the {@link DriverPool} and their pickup ETAs computed in one matrix call.
+ * If there is no matrix service or it fails or times out, the ETAs of the closest few are
+ * computed with parallel route requests instead, and any that are still missing are estimated
+ * from the straight line distance. Each stage has its own time budget, so dispatch latency
+ * stays bounded however many drivers are in the pool.
+ */
+public class DriverDispatcher {
+    public static final int DEFAULT_MAX_CANDIDATES = 100;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 3000;
+
+    // Rounds of shortlisting again after every chosen driver was claimed by another rider.
+    private static final int MAX_DISPATCH_ATTEMPTS = 3;
+    // Route requests sent at once when falling back from the matrix.
+    private static final int ROUTE_FALLBACK_CANDIDATES = 8;
+    // Average city speed for straight line estimates, about 20 km/h, and detour factor.
+    private static final double ESTIMATE_METERS_PER_SECOND = 5.5;
+    private static final double ESTIMATE_DETOUR_FACTOR = 1.4;
+
+    private DriverPool pool;
+    private EtaProvider etaProvider;
+    private Router router;
+    private int maxCandidates;
+    private long timeoutMillis;
+    private ExecutorService executorService = Executors.newFixedThreadPool(ROUTE_FALLBACK_CANDIDATES, runnable -> {
+        Thread thread = new Thread(runnable, "driver-dispatch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private AtomicLong matrixDispatches = new AtomicLong();
+    private AtomicLong routeDispatches = new AtomicLong();
+    private AtomicLong estimatedDispatches = new AtomicLong();
+
+    /**
+     * @param etaProvider matrix service, or null to use route requests only
+     */
+    public DriverDispatcher(DriverPool pool, EtaProvider etaProvider, Router router, int maxCandidates,
+                            long timeoutMillis) {
+        this.pool = pool;
+        this.etaProvider = etaProvider;
+        this.router = router;
+        this.maxCandidates = maxCandidates;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public DriverDispatcher(DriverPool pool, EtaProvider etaProvider, Router router) {
+        this(pool, etaProvider, router, DEFAULT_MAX_CANDIDATES, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Claim the driver with the earliest ETA to {@code pickup}.
+     *
+     * @return empty if no driver is available, or other riders kept claiming the ones chosen
+     */
+    public Optional<Assignment> dispatch(LocationCoordinate pickup) {
+        for (int attempt = 0; attempt < MAX_DISPATCH_ATTEMPTS; attempt++) {
+            List<DriverPosition> candidates = pool.nearest(pickup, maxCandidates);
+            if (candidates.isEmpty()) return Optional.empty();
+
+            long[] etas = getEtas(candidates, pickup);
+            Integer[] order = new Integer[candidates.size()];
+            for (int i = 0; i < order.length; i++)
+                order[i] = i;
+            Arrays.sort(order, (a, b) -> Long.compare(etas[a], etas[b]));
+
+            for (int i : order) {
+                if (pool.claim(candidates.get(i)))
+                    return Optional.of(new Assignment(candidates.get(i), etas[i]));
+            }
+            // Every driver we chose was taken by another rider meanwhile; look again.
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Return the driver of an assignment to the pool.
+     *
+     * @param position where the driver is now, or null if unchanged
+     */
+    public void release(Assignment assignment, LocationCoordinate position) {
+        pool.release(assignment.getDriver(), position);
+    }
+
+    public DriverPool getPool() {
+        return pool;
+    }
+
+    public long getMatrixDispatches() {
+        return matrixDispatches.get();
+    }
+
+    public long getRouteDispatches() {
+        return routeDispatches.get();
+    }
+
+    public long getEstimatedDispatches() {
+        return estimatedDispatches.get();
+    }
+
+    /**
+     * @return an ETA for every candidate; those no service could give are estimated
+     */
+    private long[] getEtas(List<DriverPosition> candidates, LocationCoordinate pickup) {
+        List<LocationCoordinate> origins = new ArrayList<>(candidates.size());
+        for (DriverPosition candidate : candidates)
+            origins.add(candidate.getPosition());
+
+        long[] etas = getServiceEtas(origins, pickup);
+        // Candidates past the routed few, and those the matrix or routes could not reach, are estimated.
+        for (int i = 0; i < etas.length; i++) {
+            if (etas[i] < 0)
+                etas[i] = estimateMillis(origins.get(i), pickup);
+        }
+        return etas;
+    }
+
+    // ETAs from the matrix or the route fallback, -1 where there is none.
+    private long[] getServiceEtas(List<LocationCoordinate> origins, LocationCoordinate pickup) {
+        if (etaProvider != null) {
+            Future<Optional<long[]>> matrix = executorService.submit(() -> etaProvider.getTravelTimes(origins, pickup));
+            try {
+                Optional<long[]> etas = matrix.get(timeoutMillis, TimeUnit.MILLISECONDS);
+                if (etas.isPresent() && etas.get().length == origins.size()) {
+                    matrixDispatches.incrementAndGet();
+                    return etas.get();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException ex) {
+                matrix.cancel(true);
+                System.out.println("Matrix ETAs failed, falling back to routes: " + ex);
+            }
+        }
+
+        long[] etas = new long[origins.size()];
+        Arrays.fill(etas, -1);
+        boolean isRouted = false;
+        List<Callable<Optional<DirectionResponse>>> routes = new ArrayList<>();
+        for (int i = 0; i < Math.min(ROUTE_FALLBACK_CANDIDATES, origins.size()); i++) {
+            LocationCoordinate origin = origins.get(i);
+            routes.add(() -> router.getDirections(origin, pickup));
+        }
+        try {
+            List<Future<Optional<DirectionResponse>>> results = executorService.invokeAll(routes, timeoutMillis, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i).isCancelled()) continue;
+                try {
+                    Optional<DirectionResponse> response = results.get(i).get();
+                    if (response.isPresent() && !response.get().getPaths().isEmpty()) {
+                        etas[i] = response.get().getPaths().get(0).getTime();
+                        isRouted = true;
+                    }
+                } catch (ExecutionException ex) {
+                    System.out.println("Route ETA failed: " + ex.getCause());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (isRouted)
+            routeDispatches.incrementAndGet();
+        else
+            estimatedDispatches.incrementAndGet();
+        return etas;
+    }
+
+    static long estimateMillis(LocationCoordinate from, LocationCoordinate to) {
+        double meters = ESTIMATE_DETOUR_FACTOR * Route.straightLineDistance(from, to);
+        return Math.round(1000 * meters / ESTIMATE_METERS_PER_SECOND);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @ToString
+    public static class Assignment {
+        private DriverPosition driver;
+
+        // Milliseconds until the driver reaches the pickup.
+        private long eta;
+    }
+}
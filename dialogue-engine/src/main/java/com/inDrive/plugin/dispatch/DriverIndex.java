@@ -0,0 +1,218 @@
+package com.inDrive.plugin.dispatch;
+
+import com.inDrive.plugin.model.LocationCoordinate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent spatial index of driver positions for nearest driver queries. The map is divided
+ * into cells the size of a precision 6 geohash (about 1.2 by 0.6 km around Pune), and each
+ * driver is filed under the cell it is in. A query scans rings of cells around the pickup,
+ * nearest first, and stops once no unscanned cell can hold a closer driver than the ones found,
+ * so it only looks at the drivers nearby however many there are. Distances are equirectangular
+ * approximations, which are within a fraction of a percent of the great circle distance at city
+ * scale and much cheaper to compute.
+ * <p>
+ * Cells are guarded by a fixed set of striped locks, so position updates in different parts of
+ * the city do not contend, and a query only holds the lock of the cell it is scanning. A driver
+ * moving between cells holds both cells' locks, so queries never see it twice or not at all.
+ * Cells do not wrap around the antimeridian.
+ */
+public class DriverIndex {
+    // Geohash precision 6: 15 bits of latitude and 15 bits of longitude.
+    private static final double CELL_LATITUDE_DEGREES = 180.0 / (1 << 15);
+    private static final double CELL_LONGITUDE_DEGREES = 360.0 / (1 << 15);
+    private static final double METERS_PER_DEGREE = 111_195;
+
+    // Rings scanned at most, about 40 km from the pickup.
+    private static final int MAX_SEARCH_RINGS = 64;
+    private static final int LOCK_STRIPES = 64;
+
+    private Map<Long, List<DriverPosition>> cells = new ConcurrentHashMap<>();
+    private Map<DriverPosition, Long> cellByDriver = new ConcurrentHashMap<>();
+    private ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+    private AtomicInteger size = new AtomicInteger();
+
+    public DriverIndex() {
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new ReentrantLock();
+    }
+
+    /**
+     * Index a driver at its current position. Does nothing if it is indexed already.
+     */
+    public void add(DriverPosition driver) {
+        synchronized (driver) {
+            if (cellByDriver.containsKey(driver)) return;
+            long cell = cellOf(driver.getPosition());
+            ReentrantLock lock = stripe(cell);
+            lock.lock();
+            try {
+                cells.computeIfAbsent(cell, c -> new ArrayList<>(4)).add(driver);
+            } finally {
+                lock.unlock();
+            }
+            cellByDriver.put(driver, cell);
+            size.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return false if the driver was not indexed, e.g. because another thread removed it first
+     */
+    public boolean remove(DriverPosition driver) {
+        synchronized (driver) {
+            Long cell = cellByDriver.remove(driver);
+            if (cell == null) return false;
+            ReentrantLock lock = stripe(cell);
+            lock.lock();
+            try {
+                cells.get(cell).remove(driver);
+            } finally {
+                lock.unlock();
+            }
+            size.decrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Move a driver to a new position, refiling it if it crossed into another cell. The position
+     * of a driver that is not indexed is just updated.
+     */
+    public void update(DriverPosition driver, LocationCoordinate position) {
+        synchronized (driver) {
+            Long from = cellByDriver.get(driver);
+            if (from == null) {
+                driver.setPosition(position);
+                return;
+            }
+
+            long to = cellOf(position);
+            ReentrantLock fromLock = stripe(from);
+            ReentrantLock toLock = stripe(to);
+            // Stripes are always locked in index order, so two moves cannot deadlock.
+            ReentrantLock first = stripeIndex(from) <= stripeIndex(to) ? fromLock : toLock;
+            ReentrantLock second = first == fromLock ? toLock : fromLock;
+            first.lock();
+            second.lock();
+            try {
+                driver.setPosition(position);
+                if (to != from) {
+                    cells.get(from).remove(driver);
+                    cells.computeIfAbsent(to, c -> new ArrayList<>(4)).add(driver);
+                    cellByDriver.put(driver, to);
+                }
+            } finally {
+                second.unlock();
+                first.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return up to {@code count} indexed drivers closest to {@code point} in a straight line,
+     * closest first
+     */
+    public List<DriverPosition> nearest(LocationCoordinate point, int count) {
+        if (count <= 0) return Collections.emptyList();
+
+        // Farthest candidate on top, so it is the one replaced by a closer driver.
+        PriorityQueue<Candidate> best = new PriorityQueue<>(count + 1, (a, b) -> Double.compare(b.distance, a.distance));
+        long row = row(point.getLatitude());
+        long column = column(point.getLongitude());
+        double longitudeScale = Math.cos(Math.toRadians(point.getLatitude()));
+        double cellMeters = Math.min(CELL_LATITUDE_DEGREES, CELL_LONGITUDE_DEGREES * longitudeScale) * METERS_PER_DEGREE;
+        int total = size.get();
+        int scanned = 0;
+
+        for (int ring = 0; ring <= MAX_SEARCH_RINGS && scanned < total; ring++) {
+            // Every point in this ring is at least ring - 1 whole cells away from the pickup.
+            if (best.size() == count && best.peek().distance <= (ring - 1) * cellMeters) break;
+
+            for (long r = row - ring; r <= row + ring; r++) {
+                boolean isEdgeRow = r == row - ring || r == row + ring;
+                long step = isEdgeRow ? 1 : 2 * ring;
+                for (long c = column - ring; c <= column + ring; c += Math.max(1, step))
+                    scanned += scanCell(key(r, c), point, longitudeScale, count, best);
+            }
+        }
+
+        List<DriverPosition> nearest = new ArrayList<>(best.size());
+        while (!best.isEmpty())
+            nearest.add(best.poll().driver);
+        Collections.reverse(nearest);
+        return nearest;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private int scanCell(long cell, LocationCoordinate point, double longitudeScale, int count,
+                         PriorityQueue<Candidate> best) {
+        List<DriverPosition> drivers = cells.get(cell);
+        if (drivers == null) return 0;
+
+        ReentrantLock lock = stripe(cell);
+        lock.lock();
+        try {
+            for (DriverPosition driver : drivers) {
+                double dLatitude = driver.getPosition().getLatitude() - point.getLatitude();
+                double dLongitude = (driver.getPosition().getLongitude() - point.getLongitude()) * longitudeScale;
+                double distance = Math.sqrt(dLatitude * dLatitude + dLongitude * dLongitude) * METERS_PER_DEGREE;
+                if (best.size() < count) {
+                    best.add(new Candidate(driver, distance));
+                } else if (distance < best.peek().distance) {
+                    best.poll();
+                    best.add(new Candidate(driver, distance));
+                }
+            }
+            return drivers.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long cellOf(LocationCoordinate position) {
+        return key(row(position.getLatitude()), column(position.getLongitude()));
+    }
+
+    private static long row(double latitude) {
+        return (long) Math.floor((latitude + 90) / CELL_LATITUDE_DEGREES);
+    }
+
+    private static long column(double longitude) {
+        return (long) Math.floor((longitude + 180) / CELL_LONGITUDE_DEGREES);
+    }
+
+    private static long key(long row, long column) {
+        return (row << 32) | (column & 0xffffffffL);
+    }
+
+    private ReentrantLock stripe(long cell) {
+        return stripes[stripeIndex(cell)];
+    }
+
+    private static int stripeIndex(long cell) {
+        long hash = cell * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 58) & (LOCK_STRIPES - 1);
+    }
+
+    private static class Candidate {
+        private DriverPosition driver;
+        private double distance;
+
+        private Candidate(DriverPosition driver, double distance) {
+            this.driver = driver;
+            this.distance = distance;
+        }
+    }
+}
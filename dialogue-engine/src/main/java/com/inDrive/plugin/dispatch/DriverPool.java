@@ -0,0 +1,98 @@
+package com.inDrive.plugin.dispatch;
+
+import com.inDrive.plugin.model.Driver;
+import com.inDrive.plugin.model.LocationCoordinate;
+import com.inDrive.plugin.model.Vehicle;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Drivers that are free to take a ride, with their last known position, in a
+ * {@link DriverIndex}. A driver is claimed when dispatched and released again, at the drop, when
+ * the ride ends. Positions streamed in from the drivers' apps go through
+ * {@link #updatePosition(DriverPosition, LocationCoordinate)}.
+ */
+public class DriverPool {
+    public static final String DEFAULT_DRIVERS = "/dispatch/drivers.txt";
+
+    private DriverIndex available = new DriverIndex();
+
+    public static DriverPool loadDefault() throws IOException {
+        try (InputStream is = DriverPool.class.getResourceAsStream(DEFAULT_DRIVERS)) {
+            if (is == null)
+                throw new IOException("Missing driver list " + DEFAULT_DRIVERS);
+            return load(is);
+        }
+    }
+
+    public static DriverPool load(InputStream definition) throws IOException {
+        DriverPool pool = new DriverPool();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(definition, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] fields = line.split("\\s*\\|\\s*");
+            if (fields.length != 8)
+                throw new IllegalArgumentException(String.format("Line %d: expected <name> | <contact> | <stars> | "
+                        + "<vehicle number> | <vehicle type> | <vehicle model> | <latitude> | <longitude>", lineNumber));
+            try {
+                Vehicle vehicle = new Vehicle(fields[3], fields[4], fields[5]);
+                Driver driver = new Driver(fields[0], vehicle, fields[1], Integer.parseInt(fields[2]));
+                LocationCoordinate position = new LocationCoordinate(Double.parseDouble(fields[6]), Double.parseDouble(fields[7]));
+                pool.add(new DriverPosition(driver, position));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException(String.format("Line %d: %s", lineNumber, ex.getMessage()), ex);
+            }
+        }
+        return pool;
+    }
+
+    public void add(DriverPosition driver) {
+        available.add(driver);
+    }
+
+    /**
+     * @return up to {@code count} available drivers closest to {@code point} in a straight line,
+     * closest first
+     */
+    public List<DriverPosition> nearest(LocationCoordinate point, int count) {
+        return available.nearest(point, count);
+    }
+
+    /**
+     * Take a driver out of the pool for a ride.
+     *
+     * @return false if the driver was claimed for another ride in the meantime
+     */
+    public boolean claim(DriverPosition driver) {
+        return available.remove(driver);
+    }
+
+    /**
+     * Return a driver to the pool at the position where the ride ended.
+     */
+    public void release(DriverPosition driver, LocationCoordinate position) {
+        if (position != null) available.update(driver, position);
+        available.add(driver);
+    }
+
+    /**
+     * Record where a driver is now, whether free or on a ride.
+     */
+    public void updatePosition(DriverPosition driver, LocationCoordinate position) {
+        available.update(driver, position);
+    }
+
+    public int size() {
+        return available.size();
+    }
+}
@@ -0,0 +1,19 @@
+package com.inDrive.plugin.dispatch;
+
+import com.inDrive.plugin.model.Driver;
+import com.inDrive.plugin.model.LocationCoordinate;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@ToString
+public class DriverPosition {
+    private Driver driver;
+
+    private LocationCoordinate position;
+}
@@ -0,0 +1,16 @@
+package com.inDrive.plugin.dispatch;
+
+import com.inDrive.plugin.model.LocationCoordinate;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface EtaProvider {
+    /**
+     * Travel times from every origin to one destination, computed in one call.
+     *
+     * @return milliseconds for each origin in order, negative where there is no route; empty if
+     * the times could not be computed
+     */
+    Optional<long[]> getTravelTimes(List<LocationCoordinate> origins, LocationCoordinate destination);
+}
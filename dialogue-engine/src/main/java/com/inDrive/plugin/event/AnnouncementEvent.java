@@ -0,0 +1,20 @@
+package com.inDrive.plugin.event;
+
+import com.inDrive.plugin.dialogue.Announcement;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A message the dialogue engine speaks to the rider outside of a turn, e.g. that the driver has
+ * arrived.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class AnnouncementEvent {
+    private final Announcement announcement;
+    // The ride reached its destination, so the conversation moves on to the rating.
+    private final boolean isDestinationReached;
+}
@@ -0,0 +1,143 @@
+package com.inDrive.plugin.event;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * In-process publish/subscribe of typed events such as {@link AnnouncementEvent} and
+ * {@link RideEvent}. Subscribers are kept in an array that is replaced with compare-and-set, so
+ * publishing takes no lock and allocates nothing beyond queueing the event.
+ * <p>
+ * Each subscriber names the executor its handler runs on and how many events may wait for it.
+ * Events reach a handler one at a time, in the order they were published; one slow subscriber
+ * does not hold up the others. Once its queue is full, newer events for that subscriber are
+ * dropped and counted, so a stalled consumer cannot grow the heap. Pass {@code Runnable::run}
+ * as the executor to handle events on the publishing thread.
+ */
+public class EventBus {
+    private AtomicReference<Subscriber<?>[]> subscribers = new AtomicReference<>(new Subscriber<?>[0]);
+
+    public <E> Subscription subscribe(Class<E> type, Executor executor, Consumer<? super E> handler) {
+        return subscribe(type, executor, Integer.MAX_VALUE, handler);
+    }
+
+    /**
+     * @param capacity events that may wait for the handler before newer ones are dropped
+     */
+    public <E> Subscription subscribe(Class<E> type, Executor executor, int capacity, Consumer<? super E> handler) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+
+        Subscriber<E> subscriber = new Subscriber<>(type, executor, capacity, handler);
+        while (true) {
+            Subscriber<?>[] current = subscribers.get();
+            Subscriber<?>[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = subscriber;
+            if (subscribers.compareAndSet(current, next)) return subscriber;
+        }
+    }
+
+    /**
+     * Queue the event for every subscriber of its type or a supertype of it.
+     */
+    public void publish(Object event) {
+        for (Subscriber<?> subscriber : subscribers.get()) {
+            if (subscriber.type.isInstance(event))
+                subscriber.offer(event);
+        }
+    }
+
+    private void unsubscribe(Subscriber<?> subscriber) {
+        while (true) {
+            Subscriber<?>[] current = subscribers.get();
+            int index = Arrays.asList(current).indexOf(subscriber);
+            if (index < 0) return;
+
+            Subscriber<?>[] next = new Subscriber<?>[current.length - 1];
+            System.arraycopy(current, 0, next, 0, index);
+            System.arraycopy(current, index + 1, next, index, next.length - index);
+            if (subscribers.compareAndSet(current, next)) return;
+        }
+    }
+
+    public interface Subscription extends AutoCloseable {
+        /**
+         * @return events dropped because the subscriber's queue was full
+         */
+        long getDropped();
+
+        /**
+         * Stop receiving events. Events already queued are discarded.
+         */
+        @Override
+        void close();
+    }
+
+    private class Subscriber<E> implements Subscription {
+        private Class<E> type;
+        private Executor executor;
+        private int capacity;
+        private Consumer<? super E> handler;
+
+        private Queue<E> queue = new ConcurrentLinkedQueue<>();
+        private AtomicInteger queued = new AtomicInteger();
+        private AtomicBoolean isDraining = new AtomicBoolean();
+        private AtomicLong dropped = new AtomicLong();
+        private volatile boolean isClosed;
+
+        private Subscriber(Class<E> type, Executor executor, int capacity, Consumer<? super E> handler) {
+            this.type = type;
+            this.executor = executor;
+            this.capacity = capacity;
+            this.handler = handler;
+        }
+
+        private void offer(Object event) {
+            if (queued.incrementAndGet() > capacity) {
+                queued.decrementAndGet();
+                dropped.incrementAndGet();
+                return;
+            }
+            queue.add(type.cast(event));
+            if (isDraining.compareAndSet(false, true))
+                executor.execute(this::drain);
+        }
+
+        // Only one drain runs at a time, so the handler sees events in order and never concurrently.
+        private void drain() {
+            while (true) {
+                E event;
+                while ((event = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    if (isClosed) continue;
+                    try {
+                        handler.accept(event);
+                    } catch (RuntimeException ex) {
+                        System.out.println("Event handler failed on " + event + ": " + ex);
+                    }
+                }
+                isDraining.set(false);
+                // An event queued after the last poll but before the flag was cleared is ours.
+                if (queue.isEmpty() || !isDraining.compareAndSet(false, true)) return;
+            }
+        }
+
+        @Override
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        @Override
+        public void close() {
+            isClosed = true;
+            unsubscribe(this);
+        }
+    }
+}
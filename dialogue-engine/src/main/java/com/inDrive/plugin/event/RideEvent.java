@@ -0,0 +1,19 @@
+package com.inDrive.plugin.event;
+
+import com.inDrive.plugin.model.RideSnapshot;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A change to the rider's ride. Compare {@link RideSnapshot#getVersion()} to order changes made
+ * concurrently.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class RideEvent {
+    private final RideSnapshot previous;
+    private final RideSnapshot current;
+}
@@ -0,0 +1,113 @@
+package com.inDrive.plugin.model;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A rider's ride, published as immutable {@link RideSnapshot}s. Dialogue turns, ride progress
+ * timers and the UI all read and change it: readers take one snapshot and get a consistent view
+ * without locking, and writers replace the snapshot with compare-and-set, reapplying their
+ * change if another update got in first, so no update is lost. Status changes are checked
+ * against {@link RideStatus#canTransitionTo(RideStatus)}.
+ */
+public class Ride {
+    private AtomicReference<RideSnapshot> snapshot;
+    private List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public Ride(Passenger passenger) {
+        this(RideSnapshot.notBooked(passenger));
+    }
+
+    /**
+     * Resume a ride from a snapshot, e.g. one recovered after a restart.
+     */
+    public Ride(RideSnapshot snapshot) {
+        this.snapshot = new AtomicReference<>(snapshot);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public RideSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Apply {@code change} to the current snapshot. It may be applied more than once, so it must
+     * not have side effects.
+     *
+     * @return the new snapshot
+     * @throws IllegalStateException if the change moves the ride to a status it cannot reach
+     */
+    public RideSnapshot update(UnaryOperator<RideSnapshot> change) {
+        while (true) {
+            RideSnapshot current = snapshot.get();
+            RideSnapshot next = change.apply(current).withVersion(current.getVersion() + 1);
+            checkTransition(current, next);
+            if (snapshot.compareAndSet(current, next)) {
+                notifyListeners(current, next);
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Apply {@code change} and move the ride to status {@code to}, if it is in status
+     * {@code from}. With {@code from} equal to {@code to} this is an update that only applies
+     * while the ride stays in that status, e.g. a countdown of a ride that may be cancelled.
+     *
+     * @return the new snapshot, or empty if the ride was not in status {@code from}
+     */
+    public Optional<RideSnapshot> transition(RideStatus from, RideStatus to, UnaryOperator<RideSnapshot> change) {
+        return transition(current -> current.getRideStatus() == from, to, change);
+    }
+
+    /**
+     * Like {@link #transition(RideStatus, RideStatus, UnaryOperator)}, but only while the ride is
+     * still the booking made at {@code bookingVersion}, so e.g. the countdown of a cancelled
+     * booking does not run down the one that replaced it.
+     */
+    public Optional<RideSnapshot> transition(long bookingVersion, RideStatus from, RideStatus to,
+                                             UnaryOperator<RideSnapshot> change) {
+        return transition(current -> current.getBookingVersion() == bookingVersion && current.getRideStatus() == from,
+                to, change);
+    }
+
+    private Optional<RideSnapshot> transition(Predicate<RideSnapshot> from, RideStatus to, UnaryOperator<RideSnapshot> change) {
+        while (true) {
+            RideSnapshot current = snapshot.get();
+            if (!from.test(current))
+                return Optional.empty();
+            RideSnapshot next = change.apply(current).withRideStatus(to).withVersion(current.getVersion() + 1);
+            checkTransition(current, next);
+            if (snapshot.compareAndSet(current, next)) {
+                notifyListeners(current, next);
+                return Optional.of(next);
+            }
+        }
+    }
+
+    private void notifyListeners(RideSnapshot previous, RideSnapshot current) {
+        for (Listener listener : listeners)
+            listener.rideChanged(previous, current);
+    }
+
+    private static void checkTransition(RideSnapshot current, RideSnapshot next) {
+        if (!current.getRideStatus().canTransitionTo(next.getRideStatus()))
+            throw new IllegalStateException(String.format("Ride cannot go from %s to %s",
+                    current.getRideStatus(), next.getRideStatus()));
+    }
+
+    public interface Listener {
+        /**
+         * Called after every change, on the thread that made it. Changes made concurrently may
+         * be reported out of order; {@link RideSnapshot#getVersion()} tells which is newer.
+         */
+        void rideChanged(RideSnapshot previous, RideSnapshot current);
+    }
+}
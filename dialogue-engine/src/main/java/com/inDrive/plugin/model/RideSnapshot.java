@@ -0,0 +1,41 @@
+package com.inDrive.plugin.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.With;
+
+/**
+ * State of a {@link Ride} at one point in time. Snapshots are never modified; a change creates
+ * a new snapshot through the {@code with} methods. Every change published by the ride has a
+ * higher version than the snapshot it replaced.
+ */
+@Getter
+@With
+@AllArgsConstructor
+@ToString
+public class RideSnapshot {
+    private static final String OTP = "6 5 1 9";
+
+    private final Passenger passenger;
+    private final Driver driver;
+    private final Location source;
+    private final Location destination;
+    private final int timeInMinutesForDriver;
+    private final int timeInMinutesToReachDest;
+
+    private final String otp;
+    private final RideStatus rideStatus;
+
+    private final long version;
+    // Version the ride was booked at, 0 until it is, so the timers of a cancelled booking leave
+    // the next one alone. Not journaled, as a booking recovered after a restart is cancelled.
+    private final long bookingVersion;
+
+    /**
+     * @return a ride of {@code passenger} that is not booked yet
+     */
+    public static RideSnapshot notBooked(Passenger passenger) {
+        return new RideSnapshot(passenger, null, null, null, 0, 0, OTP, RideStatus.NOT_BOOKED, 0, 0);
+    }
+}
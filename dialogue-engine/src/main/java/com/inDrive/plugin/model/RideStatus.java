@@ -0,0 +1,13 @@
+package com.inDrive.plugin.model;
+
+public enum RideStatus {
+    NOT_BOOKED, BOOKED, DRIVER_ARRIVED, STARTED, REACHED;
+
+    /**
+     * A ride moves forward one status at a time, and can be cancelled back to
+     * {@link #NOT_BOOKED} from any status.
+     */
+    public boolean canTransitionTo(RideStatus next) {
+        return next == this || next == NOT_BOOKED || next.ordinal() == ordinal() + 1;
+    }
+}
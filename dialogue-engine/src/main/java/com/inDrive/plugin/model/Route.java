@@ -0,0 +1,91 @@
+package com.inDrive.plugin.model;
+
+import com.inDrive.plugin.navigation.graphhopper.response.direction.Instruction;
+import com.inDrive.plugin.navigation.graphhopper.response.direction.Path;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A route through two or more stops (pickup, intermediate stops, drop) with the distance and
+ * time of every leg between consecutive stops.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class Route {
+    // GraphHopper instruction signs that end a leg.
+    private static final int SIGN_FINISH = 4;
+    private static final int SIGN_REACHED_VIA = 5;
+
+    private List<Location> stops;
+    private List<RouteLeg> legs;
+
+    // Meters.
+    private double distance;
+
+    // Milliseconds.
+    private long time;
+
+    // [longitude, latitude] pairs along the route.
+    private List<List<Double>> coordinates;
+
+    /**
+     * Split a GraphHopper path through {@code stops} into legs. The route API leaves
+     * {@code legs} empty, so legs are cut from the instructions at every via point; without
+     * instructions the path's totals are shared out by the straight line length of each leg.
+     */
+    public static Route fromPath(List<Location> stops, Path path) {
+        List<RouteLeg> legs = new ArrayList<>(stops.size() - 1);
+        List<Instruction> instructions = path.getInstructions();
+        if (instructions != null && !instructions.isEmpty()) {
+            double distance = 0;
+            long time = 0;
+            for (Instruction instruction : instructions) {
+                distance += instruction.getDistance();
+                time += instruction.getTime();
+                if ((instruction.getSign() == SIGN_REACHED_VIA || instruction.getSign() == SIGN_FINISH)
+                        && legs.size() < stops.size() - 1) {
+                    legs.add(new RouteLeg(stops.get(legs.size()), stops.get(legs.size() + 1), distance, time));
+                    distance = 0;
+                    time = 0;
+                }
+            }
+        }
+
+        if (legs.size() != stops.size() - 1) {
+            legs.clear();
+            double[] lengths = new double[stops.size() - 1];
+            double total = 0;
+            for (int i = 0; i < lengths.length; i++) {
+                lengths[i] = straightLineDistance(stops.get(i).getLocationCoordinates(), stops.get(i + 1).getLocationCoordinates());
+                total += lengths[i];
+            }
+            for (int i = 0; i < lengths.length; i++) {
+                double share = total > 0 ? lengths[i] / total : 1.0 / lengths.length;
+                legs.add(new RouteLeg(stops.get(i), stops.get(i + 1), path.getDistance() * share,
+                        Math.round(path.getTime() * share)));
+            }
+        }
+
+        List<List<Double>> coordinates = path.getPoints() != null ? path.getPoints().getCoordinates() : List.of();
+        return new Route(stops, legs, path.getDistance(), path.getTime(), coordinates);
+    }
+
+    /**
+     * @return great circle distance in meters
+     */
+    public static double straightLineDistance(LocationCoordinate from, LocationCoordinate to) {
+        double lat1 = Math.toRadians(from.getLatitude());
+        double lat2 = Math.toRadians(to.getLatitude());
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(to.getLongitude() - from.getLongitude());
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * 6371000 * Math.asin(Math.sqrt(a));
+    }
+}
@@ -0,0 +1,19 @@
+package com.inDrive.plugin.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class RouteLeg {
+    private Location from;
+    private Location to;
+
+    // Meters.
+    private double distance;
+
+    // Milliseconds.
+    private long time;
+}
@@ -0,0 +1,15 @@
+package com.inDrive.plugin.navigation.graphhopper.response.matrix;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+@Getter
+@Setter
+@ToString
+public class MatrixResponse {
+    // Seconds from each from_point (rows) to each to_point (columns), null where unreachable.
+    private List<List<Double>> times;
+}
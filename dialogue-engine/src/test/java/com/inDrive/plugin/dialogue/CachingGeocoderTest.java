@@ -0,0 +1,85 @@
+package com.inDrive.plugin.dialogue;
+
+import com.inDrive.plugin.model.Location;
+import com.inDrive.plugin.model.LocationCoordinate;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CachingGeocoderTest {
+    private static final int MAX_ENTRIES = 4;
+
+    private List<String> geocoded = new ArrayList<>();
+    private PlaceIndex placeIndex;
+    private CachingGeocoder geocoder;
+
+    @Before
+    public void setUp() throws IOException {
+        placeIndex = PlaceIndex.loadDefault();
+        geocoder = new CachingGeocoder(new FakeGeocoder(), placeIndex, MAX_ENTRIES);
+    }
+
+    @Test
+    public void misspelledKnownPlaceIsGeocodedOnce() {
+        geocoder.getLocations(List.of("Kothrud", "Kothrood"));
+        geocoder.getLocation("kot hrud");
+
+        assertEquals(List.of("Kothrud"), geocoded);
+        assertEquals(2, geocoder.getHits());
+    }
+
+    @Test
+    public void learnedNamesLeaveTheIndexWithTheCache() {
+        int known = placeIndex.size();
+        for (int i = 0; i < 10 * MAX_ENTRIES; i++)
+            assertTrue(geocoder.getLocation(street(i)).isPresent());
+
+        assertEquals(MAX_ENTRIES, geocoder.size());
+        assertEquals(known + MAX_ENTRIES, placeIndex.size());
+        assertEquals(Optional.empty(), placeIndex.lookup(street(0)));
+        String newest = street(10 * MAX_ENTRIES - 1);
+        assertEquals(Optional.of(newest), placeIndex.lookup(newest.substring(1)));
+    }
+
+    @Test
+    public void knownPlacesStayInTheIndexWhenEvicted() {
+        int known = placeIndex.size();
+        geocoder.getLocation("Kothrud");
+        for (int i = 0; i < 2 * MAX_ENTRIES; i++)
+            geocoder.getLocation(street(i));
+
+        assertEquals(known + MAX_ENTRIES, placeIndex.size());
+        assertEquals(Optional.of("Kothrud"), placeIndex.lookup("Kothrood"));
+    }
+
+    // Names far more than two edits apart, so none is taken for another.
+    private static String street(int i) {
+        return "Lane " + String.valueOf((char) ('a' + i % 26)).repeat(4 + i);
+    }
+
+    private class FakeGeocoder implements Geocoder {
+        @Override
+        public Optional<Location> getCurrentLocation() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<Location> getLocation(String place) {
+            geocoded.add(place);
+            return Optional.of(new Location(place, new LocationCoordinate(18.52, 73.85)));
+        }
+
+        @Override
+        public Optional<Location> getLocation(double latitude, double longitude) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.inDrive.plugin.dialogue;
+
+import com.inDrive.plugin.model.Passenger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks every row of the default dialogue definition against the compiled state machine. Each
+ * handler answers with its own name; entry handlers answer only when {@link #isEntryAnswering}
+ * is set, so the intent handlers behind them can be checked too.
+ */
+public class DialogueStateMachineTest {
+    private static final String WILDCARD = "*";
+
+    private List<String[]> rows = new ArrayList<>();
+    private Map<String, TurnHandler> handlers = new HashMap<>();
+    private boolean isEntryAnswering;
+    private ConversationState state = new ConversationState(new Passenger("Rider", "9000000000"));
+
+    @Before
+    public void setUp() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                DialogueStateMachine.class.getResourceAsStream(DialogueStateMachine.DEFAULT_DEFINITION), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                rows.add(line.split("\\s+"));
+            }
+        }
+
+        for (String[] row : rows) {
+            String name = row[2];
+            boolean isEntry = WILDCARD.equals(row[1]);
+            handlers.put(name, (state, instruction) -> isEntry && !isEntryAnswering ? null : name);
+        }
+    }
+
+    @Test
+    public void explicitRowsDispatchToTheirHandler() throws IOException {
+        DialogueStateMachine machine = DialogueStateMachine.loadDefault(handlers);
+        for (String[] row : rows) {
+            if (WILDCARD.equals(row[0]) || WILDCARD.equals(row[1])) continue;
+
+            Question question = Question.valueOf(row[0]);
+            UserIntent intent = UserIntent.valueOf(row[1]);
+            assertEquals(String.join(" ", row), row[2], dispatch(machine, question, intent));
+            assertTrue(String.join(" ", row), machine.expects(question, intent));
+        }
+    }
+
+    @Test
+    public void defaultRowsApplyToQuestionsWithoutAnExplicitRow() throws IOException {
+        DialogueStateMachine machine = DialogueStateMachine.loadDefault(handlers);
+        for (String[] row : rows) {
+            if (!WILDCARD.equals(row[0])) continue;
+
+            UserIntent intent = UserIntent.valueOf(row[1]);
+            for (Question question : Question.values()) {
+                if (explicitHandler(question, intent) != null) continue;
+                assertEquals(question + " " + intent, row[2], dispatch(machine, question, intent));
+                assertFalse(question + " " + intent, machine.expects(question, intent));
+            }
+        }
+    }
+
+    @Test
+    public void entryRowsAnswerEveryIntentOfTheirQuestion() throws IOException {
+        DialogueStateMachine machine = DialogueStateMachine.loadDefault(handlers);
+        isEntryAnswering = true;
+        for (String[] row : rows) {
+            if (!WILDCARD.equals(row[1])) continue;
+
+            Question question = Question.valueOf(row[0]);
+            assertTrue(machine.hasEntryHandler(question));
+            for (UserIntent intent : UserIntent.values())
+                assertEquals(question + " " + intent, row[2], dispatch(machine, question, intent));
+        }
+    }
+
+    @Test
+    public void everyQuestionAndIntentHasAHandler() throws IOException {
+        DialogueStateMachine machine = DialogueStateMachine.loadDefault(handlers);
+        for (Question question : Question.values()) {
+            for (UserIntent intent : UserIntent.values())
+                assertTrue(question + " " + intent, handlers.containsKey(dispatch(machine, question, intent)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownHandlerFailsToLoad() throws IOException {
+        DialogueStateMachine.load(definition("* GREETING noSuchHandler"), handlers);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownQuestionFailsToLoad() throws IOException {
+        DialogueStateMachine.load(definition("NO_SUCH_QUESTION GREETING greet"), handlers);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void missingTransitionFailsToLoad() throws IOException {
+        DialogueStateMachine.load(definition("* GREETING greet"), handlers);
+    }
+
+    @Test
+    public void entryHandlerReturningNullFallsThroughToIntent() throws IOException {
+        DialogueStateMachine machine = DialogueStateMachine.loadDefault(handlers);
+        assertNull(handlers.get("captureDestination").handle(state, ""));
+        assertEquals("greet", dispatch(machine, Question.SPECIFY_DEST, UserIntent.GREETING));
+    }
+
+    private String dispatch(DialogueStateMachine machine, Question question, UserIntent intent) {
+        state.setLastQuestion(question);
+        return machine.dispatch(state, intent, "");
+    }
+
+    private String explicitHandler(Question question, UserIntent intent) {
+        for (String[] row : rows) {
+            if (row[0].equals(question.name()) && row[1].equals(intent.name()))
+                return row[2];
+        }
+        return null;
+    }
+
+    private static InputStream definition(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
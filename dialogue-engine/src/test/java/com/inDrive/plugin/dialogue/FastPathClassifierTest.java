@@ -0,0 +1,73 @@
+package com.inDrive.plugin.dialogue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+
+public class FastPathClassifierTest {
+    @Test
+    public void classifiesShortAnswers() throws IOException {
+        FastPathClassifier classifier = FastPathClassifier.loadDefault();
+        assertEquals(Optional.of(UserIntent.AFFIRMATION), classifier.classify("Yes!"));
+        assertEquals(Optional.of(UserIntent.AFFIRMATION), classifier.classify("go ahead please"));
+        assertEquals(Optional.of(UserIntent.NEGATION), classifier.classify("Don't"));
+        assertEquals(Optional.of(UserIntent.STOP_PROCESS), classifier.classify("hold on"));
+        assertEquals(Optional.of(UserIntent.RATING), classifier.classify("give five stars"));
+    }
+
+    @Test
+    public void fallsBackUnlessEveryTokenIsCovered() throws IOException {
+        FastPathClassifier classifier = FastPathClassifier.loadDefault();
+        assertEquals(Optional.empty(), classifier.classify(""));
+        assertEquals(Optional.empty(), classifier.classify("yes to the airport"));
+        assertEquals(Optional.empty(), classifier.classify("ahead"));
+        // Fillers cover tokens but do not vote.
+        assertEquals(Optional.empty(), classifier.classify("thank you"));
+    }
+
+    @Test
+    public void overlappingPhrasesOfOneIntentAgree() throws IOException {
+        // "do not" and "not now" share "not".
+        assertEquals(Optional.of(UserIntent.NEGATION), FastPathClassifier.loadDefault().classify("do not now"));
+
+        FastPathClassifier classifier = load("AFFIRMATION x y", "AFFIRMATION y z");
+        assertEquals(Optional.of(UserIntent.AFFIRMATION), classifier.classify("x y z"));
+    }
+
+    @Test
+    public void overlappingPhrasesOfDifferentIntentsFallBack() throws IOException {
+        assertEquals(Optional.empty(), load("AFFIRMATION x y", "NEGATION y z").classify("x y z"));
+        assertEquals(Optional.empty(), FastPathClassifier.loadDefault().classify("yes no"));
+    }
+
+    @Test
+    public void phraseInsideALongerPhraseIsMatchedThroughItsSuffix() throws IOException {
+        FastPathClassifier classifier = load("AFFIRMATION a b c", "NEGATION b", "FILLER c");
+        // Only "b" matches, found while following the longer phrase.
+        assertEquals(Optional.empty(), classifier.classify("a b"));
+        assertEquals(Optional.of(UserIntent.NEGATION), classifier.classify("b c"));
+        // The longer phrase contains "b", which votes for another intent.
+        assertEquals(Optional.empty(), classifier.classify("a b c"));
+    }
+
+    @Test
+    public void longestPhraseCoversTokensTheShorterOneDoesNot() throws IOException {
+        FastPathClassifier classifier = load("AFFIRMATION b", "AFFIRMATION a b");
+        assertEquals(Optional.of(UserIntent.AFFIRMATION), classifier.classify("a b"));
+        assertEquals(Optional.empty(), classifier.classify("a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownIntentFailsToLoad() throws IOException {
+        load("NO_SUCH_INTENT yes");
+    }
+
+    private static FastPathClassifier load(String... lines) throws IOException {
+        return FastPathClassifier.load(new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,91 @@
+package com.inDrive.plugin.dialogue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+
+public class PlaceIndexTest {
+    private PlaceIndex index;
+
+    @Before
+    public void setUp() throws IOException {
+        index = PlaceIndex.loadDefault();
+    }
+
+    @Test
+    public void resolvesAliasesAndSplitWords() {
+        assertEquals(Optional.of("Pune Airport"), index.lookup("Lohegaon airport"));
+        assertEquals(Optional.of("Shivajinagar"), index.lookup("shivaji nagar"));
+        assertEquals(Optional.of("Koregaon Park"), index.lookup("Koregaon-Park"));
+    }
+
+    @Test
+    public void resolvesEditDistanceOne() {
+        // Deletion, insertion, substitution and transposition.
+        assertEquals(Optional.of("Kothrud"), index.lookup("Kotrud"));
+        assertEquals(Optional.of("Kothrud"), index.lookup("Kothrudd"));
+        assertEquals(Optional.of("Hadapsar"), index.lookup("Hadapser"));
+        assertEquals(Optional.of("Baner"), index.lookup("Banre"));
+    }
+
+    @Test
+    public void resolvesEditDistanceTwo() {
+        assertEquals(Optional.of("Kothrud"), index.lookup("Kothrood"));
+        assertEquals(Optional.of("Hinjewadi"), index.lookup("Hinjewadee"));
+        assertEquals(Optional.of("Viman Nagar"), index.lookup("Vimaan Nagr"));
+    }
+
+    @Test
+    public void rejectsEditDistanceThree() {
+        assertEquals(Optional.empty(), index.lookup("Kothroooed"));
+    }
+
+    @Test
+    public void shortNamesTolerateFewerEdits() {
+        // Five letters allow one edit, fewer than four none.
+        assertEquals(Optional.of("Aundh"), index.lookup("Andh"));
+        assertEquals(Optional.empty(), index.lookup("Bonar"));
+        assertEquals(Optional.of("Koregaon Park"), index.lookup("KP"));
+        assertEquals(Optional.empty(), index.lookup("KQ"));
+    }
+
+    @Test
+    public void tiesGoToThePlaceUsedMost() {
+        PlaceIndex places = new PlaceIndex(PlaceIndex.DEFAULT_MAX_EDIT_DISTANCE);
+        places.add("Ravet", "Ravet");
+        places.add("Raven", "Raven");
+        places.add("Raven", "Raven");
+        assertEquals(Optional.of("Raven"), places.lookup("Raveo"));
+    }
+
+    @Test
+    public void learnsAddedPlaces() {
+        assertEquals(Optional.empty(), index.lookup("Balewadi High Street"));
+        index.add("Balewadi High Street", "Balewadi High Street");
+        assertEquals(Optional.of("Balewadi High Street"), index.lookup("Balewadi Hi Street"));
+    }
+
+    @Test
+    public void forgetsRemovedPlaces() {
+        int known = index.size();
+        index.add("Balewadi High Street", "Balewadi High Street");
+        index.remove("balewadi high street");
+
+        assertEquals(known, index.size());
+        assertEquals(Optional.empty(), index.lookup("Balewadi High Street"));
+        assertEquals(Optional.empty(), index.lookup("Balewadi Hi Street"));
+        // Places sharing delete variants with the removed one are still found.
+        assertEquals(Optional.of("Baner"), index.lookup("Banre"));
+    }
+
+    @Test
+    public void editDistanceCountsTranspositionsAndStopsAtTheLimit() {
+        assertEquals(1, PlaceIndex.editDistance("baner", "banre", 2));
+        assertEquals(2, PlaceIndex.editDistance("kothrud", "kothrood", 2));
+        assertEquals(3, PlaceIndex.editDistance("kothrud", "kothroooed", 2));
+    }
+}
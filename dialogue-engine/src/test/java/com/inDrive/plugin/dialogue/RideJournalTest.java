@@ -0,0 +1,194 @@
+package com.inDrive.plugin.dialogue;
+
+import com.inDrive.plugin.model.Driver;
+import com.inDrive.plugin.model.Location;
+import com.inDrive.plugin.model.LocationCoordinate;
+import com.inDrive.plugin.model.Passenger;
+import com.inDrive.plugin.model.Ride;
+import com.inDrive.plugin.model.RideSnapshot;
+import com.inDrive.plugin.model.RideStatus;
+import com.inDrive.plugin.model.Vehicle;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RideJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private Ride ride;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(folder.getRoot(), "ride.journal");
+        ride = new Ride(new Passenger("Asha", "9000000000"));
+    }
+
+    @Test
+    public void newJournalRecoversNothing() throws IOException {
+        RideJournal journal = new RideJournal(file);
+        assertFalse(journal.getRecoveredRide().isPresent());
+        journal.close();
+    }
+
+    @Test
+    public void recoversTheRideAsOfTheLastChange() throws IOException {
+        RideJournal journal = new RideJournal(file);
+        journal.attach(ride);
+        book(ride);
+        ride.transition(RideStatus.BOOKED, RideStatus.DRIVER_ARRIVED, r -> r.withTimeInMinutesForDriver(0));
+        journal.close();
+
+        assertSameRide(ride.getSnapshot(), recover());
+    }
+
+    @Test
+    public void tornTailIsCutOff() throws IOException {
+        RideJournal journal = new RideJournal(file);
+        journal.attach(ride);
+        book(ride);
+        journal.close();
+        long intact = file.length();
+
+        // A record whose header promises more bytes than made it to disk.
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(intact);
+            out.writeInt(40);
+            out.writeInt(0);
+            out.write(new byte[] { 2, 0, 0 });
+        }
+
+        journal = new RideJournal(file);
+        assertSameRide(ride.getSnapshot(), journal.getRecoveredRide().get());
+        assertEquals(intact, file.length());
+
+        // Changes after recovery append after the intact records.
+        Ride recovered = new Ride(journal.getRecoveredRide().get());
+        journal.attach(recovered);
+        recovered.update(r -> r.withTimeInMinutesForDriver(3));
+        journal.close();
+        assertSameRide(recovered.getSnapshot(), recover());
+    }
+
+    @Test
+    public void recordWithBadChecksumEndsReplay() throws IOException {
+        RideJournal journal = new RideJournal(file);
+        journal.attach(ride);
+        book(ride);
+        journal.flush();
+        RideSnapshot beforeLast = ride.getSnapshot();
+        long intact = file.length();
+        ride.update(r -> r.withTimeInMinutesForDriver(1));
+        journal.close();
+        assertTrue(file.length() > intact);
+
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(file.length() - 1);
+            byte last = out.readByte();
+            out.seek(file.length() - 1);
+            out.writeByte(last ^ 0xff);
+        }
+
+        assertSameRide(beforeLast, recover());
+        assertEquals(intact, file.length());
+    }
+
+    @Test
+    public void recoversAfterCompaction() throws IOException {
+        RideJournal journal = new RideJournal(file);
+        journal.attach(ride);
+        book(ride);
+        for (int i = 0; i < 2 * RideJournal.SNAPSHOT_INTERVAL; i++)
+            ride.update(r -> r.withTimeInMinutesToReachDest(r.getTimeInMinutesToReachDest() + 1));
+        journal.flush();
+        journal.flush();
+        long compacted = file.length();
+
+        ride.transition(RideStatus.BOOKED, RideStatus.DRIVER_ARRIVED, r -> r.withTimeInMinutesForDriver(0));
+        ride.transition(RideStatus.DRIVER_ARRIVED, RideStatus.STARTED, r -> r);
+        journal.close();
+
+        // One snapshot record and the two deltas after it.
+        assertTrue(compacted < 256);
+        assertTrue(file.length() - compacted < 64);
+        assertSameRide(ride.getSnapshot(), recover());
+    }
+
+    @Test
+    public void failedCompactionAppendsTheSnapshotInstead() throws IOException {
+        // Stands in the way of the compacted journal.
+        File blocker = new File(file.getPath() + ".tmp");
+        assertTrue(blocker.mkdir());
+        assertTrue(new File(blocker, "keep").createNewFile());
+
+        RideJournal journal = new RideJournal(file);
+        journal.attach(ride);
+        book(ride);
+        for (int i = 0; i < 2 * RideJournal.SNAPSHOT_INTERVAL; i++)
+            ride.update(r -> r.withTimeInMinutesToReachDest(r.getTimeInMinutesToReachDest() + 1));
+        journal.flush();
+        journal.flush();
+        assertSameRide(ride.getSnapshot(), recover());
+
+        // The journal stays writable after the failed compaction.
+        ride.transition(RideStatus.BOOKED, RideStatus.DRIVER_ARRIVED, r -> r.withTimeInMinutesForDriver(0));
+        journal.close();
+        assertSameRide(ride.getSnapshot(), recover());
+    }
+
+    @Test
+    public void attachingAFreshRideStartsOver() throws IOException {
+        RideJournal journal = new RideJournal(file);
+        journal.attach(ride);
+        book(ride);
+        journal.close();
+
+        journal = new RideJournal(file);
+        Ride fresh = new Ride(new Passenger("Asha", "9000000000"));
+        journal.attach(fresh);
+        journal.close();
+        assertSameRide(fresh.getSnapshot(), recover());
+    }
+
+    private RideSnapshot recover() throws IOException {
+        RideJournal journal = new RideJournal(file);
+        try {
+            return journal.getRecoveredRide().get();
+        } finally {
+            journal.close();
+        }
+    }
+
+    private static void book(Ride ride) {
+        ride.update(r -> r
+                .withSource(new Location("Baner", new LocationCoordinate(18.559, 73.786)))
+                .withDestination(new Location("Kothrud", new LocationCoordinate(18.507, 73.807))));
+        ride.transition(RideStatus.NOT_BOOKED, RideStatus.BOOKED, r -> r
+                .withDriver(new Driver("Dilip", new Vehicle("MH12 AB 1234", "Mini", "Celerio"), "9800000000", 5))
+                .withTimeInMinutesForDriver(7)
+                .withTimeInMinutesToReachDest(25));
+    }
+
+    private static void assertSameRide(RideSnapshot expected, RideSnapshot actual) {
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getRideStatus(), actual.getRideStatus());
+        assertEquals(expected.getPassenger().getPassengerContact(), actual.getPassenger().getPassengerContact());
+        assertEquals(expected.getTimeInMinutesForDriver(), actual.getTimeInMinutesForDriver());
+        assertEquals(expected.getTimeInMinutesToReachDest(), actual.getTimeInMinutesToReachDest());
+        assertEquals(expected.getOtp(), actual.getOtp());
+        assertEquals(String.valueOf(expected.getDriver()), String.valueOf(actual.getDriver()));
+        assertEquals(String.valueOf(expected.getSource()), String.valueOf(actual.getSource()));
+        assertEquals(String.valueOf(expected.getDestination()), String.valueOf(actual.getDestination()));
+    }
+}
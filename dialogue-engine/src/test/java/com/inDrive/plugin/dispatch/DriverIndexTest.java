@@ -0,0 +1,130 @@
+package com.inDrive.plugin.dispatch;
+
+import com.inDrive.plugin.model.Driver;
+import com.inDrive.plugin.model.LocationCoordinate;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DriverIndexTest {
+    // Height and width of a precision 6 geohash cell in degrees.
+    private static final double CELL_LATITUDE = 180.0 / (1 << 15);
+    private static final double CELL_LONGITUDE = 360.0 / (1 << 15);
+    private static final LocationCoordinate PUNE = new LocationCoordinate(18.5204, 73.8567);
+
+    private DriverIndex index = new DriverIndex();
+
+    @Test
+    public void findsCloserDriverAcrossACellBorder() {
+        double north = cellBorder(PUNE.getLatitude(), 90, CELL_LATITUDE);
+        double east = cellBorder(PUNE.getLongitude(), 180, CELL_LONGITUDE);
+        LocationCoordinate pickup = new LocationCoordinate(north - 0.00001, east - 0.00001);
+
+        // Same cell as the pickup, but a few hundred meters away.
+        DriverPosition sameCell = driver("same cell", north - 0.004, east - 0.004);
+        DriverPosition acrossNorth = driver("across north", north + 0.00002, east - 0.00001);
+        DriverPosition acrossCorner = driver("across corner", north + 0.00003, east + 0.00003);
+        index.add(sameCell);
+        index.add(acrossNorth);
+        index.add(acrossCorner);
+
+        assertEquals(List.of(acrossNorth, acrossCorner, sameCell), index.nearest(pickup, 3));
+        assertEquals(List.of(acrossNorth), index.nearest(pickup, 1));
+    }
+
+    @Test
+    public void findsDriverSeveralRingsAway() {
+        DriverPosition far = driver("far", PUNE.getLatitude() + 10 * CELL_LATITUDE, PUNE.getLongitude());
+        index.add(far);
+        assertEquals(List.of(far), index.nearest(PUNE, 5));
+    }
+
+    @Test
+    public void nearestMatchesBruteForce() {
+        Random random = new Random(42);
+        List<DriverPosition> drivers = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            DriverPosition driver = driver("driver " + i, PUNE.getLatitude() + (random.nextDouble() - 0.5) * 0.2,
+                    PUNE.getLongitude() + (random.nextDouble() - 0.5) * 0.2);
+            drivers.add(driver);
+            index.add(driver);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            LocationCoordinate pickup = new LocationCoordinate(PUNE.getLatitude() + (random.nextDouble() - 0.5) * 0.2,
+                    PUNE.getLongitude() + (random.nextDouble() - 0.5) * 0.2);
+            List<DriverPosition> expected = new ArrayList<>(drivers);
+            expected.sort(Comparator.comparingDouble(driver -> distance(driver.getPosition(), pickup)));
+            assertEquals(expected.subList(0, 10), index.nearest(pickup, 10));
+        }
+    }
+
+    @Test
+    public void movesDriverBetweenCells() {
+        DriverPosition moving = driver("moving", PUNE.getLatitude(), PUNE.getLongitude());
+        DriverPosition parked = driver("parked", PUNE.getLatitude() + 0.03, PUNE.getLongitude());
+        index.add(moving);
+        index.add(parked);
+        assertEquals(List.of(moving), index.nearest(PUNE, 1));
+
+        LocationCoordinate across = new LocationCoordinate(PUNE.getLatitude() - 0.05, PUNE.getLongitude() - 0.05);
+        index.update(moving, across);
+
+        assertEquals(2, index.size());
+        assertEquals(List.of(parked, moving), index.nearest(PUNE, 5));
+        assertEquals(List.of(moving), index.nearest(across, 1));
+    }
+
+    @Test
+    public void movesDriverWithinItsCell() {
+        DriverPosition moving = driver("moving", PUNE.getLatitude(), PUNE.getLongitude());
+        index.add(moving);
+        LocationCoordinate nearby = new LocationCoordinate(PUNE.getLatitude() + 0.000001, PUNE.getLongitude());
+        index.update(moving, nearby);
+
+        assertEquals(nearby, moving.getPosition());
+        assertEquals(List.of(moving), index.nearest(PUNE, 5));
+    }
+
+    @Test
+    public void removedDriverIsNotFound() {
+        DriverPosition driver = driver("driver", PUNE.getLatitude(), PUNE.getLongitude());
+        index.add(driver);
+        index.add(driver);
+        assertEquals(1, index.size());
+
+        assertTrue(index.remove(driver));
+        assertFalse(index.remove(driver));
+        assertEquals(0, index.size());
+        assertEquals(List.of(), index.nearest(PUNE, 5));
+
+        // A driver that is not indexed only has its position updated.
+        LocationCoordinate elsewhere = new LocationCoordinate(18.6, 73.9);
+        index.update(driver, elsewhere);
+        assertEquals(elsewhere, driver.getPosition());
+        assertEquals(List.of(), index.nearest(elsewhere, 5));
+    }
+
+    // The edge of the cell holding value, on the side of larger values.
+    private static double cellBorder(double value, double offset, double cellDegrees) {
+        return (Math.floor((value + offset) / cellDegrees) + 1) * cellDegrees - offset;
+    }
+
+    private static double distance(LocationCoordinate a, LocationCoordinate b) {
+        double dLatitude = a.getLatitude() - b.getLatitude();
+        double dLongitude = (a.getLongitude() - b.getLongitude()) * Math.cos(Math.toRadians(b.getLatitude()));
+        return Math.sqrt(dLatitude * dLatitude + dLongitude * dLongitude);
+    }
+
+    private static DriverPosition driver(String name, double latitude, double longitude) {
+        return new DriverPosition(new Driver(name, null, null, 5), new LocationCoordinate(latitude, longitude));
+    }
+}
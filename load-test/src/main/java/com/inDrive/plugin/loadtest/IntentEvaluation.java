@@ -0,0 +1,137 @@
+package com.inDrive.plugin.loadtest;
+
+import com.inDrive.plugin.dialogue.IntentScorer;
+import com.inDrive.plugin.dialogue.Question;
+import com.inDrive.plugin.dialogue.ScoredIntent;
+import com.inDrive.plugin.dialogue.UserIntent;
+import com.inDrive.plugin.nlp.FileModelLoader;
+import com.inDrive.plugin.nlp.OpenNlpPipeline;
+import com.inDrive.plugin.nlp.SentenceAnalysis;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offline evaluation of intent detection over labelled utterances. Compares the context-free
+ * best category with the {@link IntentScorer} conditioned on the question being answered, and
+ * sweeps the confidence threshold. An utterance below the threshold costs one "could you
+ * repeat" turn; a confident wrong intent costs at least one correction turn and possibly a
+ * wrong action, so both are reported.
+ *
+ * <pre>
+ * Options:
+ *   --labelled FILE     labelled utterances instead of the bundled ones
+ *   --models DIR        directory with the OpenNLP models
+ *   --top-k N           intents considered for top-k accuracy (default 3)
+ * </pre>
+ */
+public class IntentEvaluation {
+    private static final double[] THRESHOLDS = {0.0, 0.1, 0.2, 0.3, 0.4, 0.5};
+
+    private final PrintStream console = System.out;
+
+    private String labelledFile;
+    private File modelsDir = new File(System.getProperty("nlp.models.dir", "."));
+    private int topK = IntentScorer.DEFAULT_TOP_K;
+
+    public static void main(String[] args) throws Exception {
+        IntentEvaluation evaluation = new IntentEvaluation();
+        evaluation.parseArguments(args);
+        evaluation.run();
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--labelled": labelledFile = value; break;
+                case "--models": modelsDir = new File(value); break;
+                case "--top-k": topK = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private void run() throws IOException {
+        List<String[]> samples = loadSamples();
+
+        // OpenNLP traces training on stdout.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        OpenNlpPipeline pipeline = new OpenNlpPipeline(new FileModelLoader(modelsDir));
+        pipeline.loadTokenizerModel();
+        pipeline.loadPOSModel();
+        pipeline.loadLemmatizerModel();
+        pipeline.trainCategorizerModel();
+        System.setOut(console);
+
+        IntentScorer scorer = IntentScorer.loadDefault(0);
+        int contextFreeCorrect = 0;
+        int topKCorrect = 0;
+        UserIntent[] expected = new UserIntent[samples.size()];
+        List<List<ScoredIntent>> scored = new ArrayList<>(samples.size());
+
+        for (int i = 0; i < samples.size(); i++) {
+            String[] sample = samples.get(i);
+            expected[i] = UserIntent.valueOf(sample[1]);
+            SentenceAnalysis analysis = pipeline.analyze(sample[2]);
+
+            UserIntent contextFree = UserIntent.fromCategory(pipeline.getBestCategory(analysis.getCategoryDistribution()));
+            if (contextFree == expected[i]) contextFreeCorrect++;
+
+            List<ScoredIntent> topIntents = scorer.score(analysis.getCategoryDistribution(), analysis.getCategories(), Question.valueOf(sample[0]), topK);
+            scored.add(topIntents);
+            for (ScoredIntent scoredIntent : topIntents) {
+                if (scoredIntent.getIntent() == expected[i]) topKCorrect++;
+            }
+            if (topIntents.isEmpty() || topIntents.get(0).getIntent() != expected[i])
+                console.printf("  miss: [%s] \"%s\" expected %s, context-free %s, scored %s%n",
+                        sample[0], sample[2], expected[i], contextFree, topIntents);
+        }
+
+        int n = samples.size();
+        console.printf("Utterances: %d%n", n);
+        console.printf("Context-free accuracy: %.1f%%%n", percent(contextFreeCorrect, n));
+        console.printf("Top-%d accuracy: %.1f%%%n", topK, percent(topKCorrect, n));
+        console.printf("%-10s %10s %10s %10s%n", "threshold", "correct", "repeat", "wrong");
+        for (double threshold : THRESHOLDS) {
+            int correct = 0, abstained = 0, wrong = 0;
+            for (int i = 0; i < n; i++) {
+                List<ScoredIntent> topIntents = scored.get(i);
+                if (topIntents.isEmpty() || topIntents.get(0).getScore() < threshold) abstained++;
+                else if (topIntents.get(0).getIntent() == expected[i]) correct++;
+                else wrong++;
+            }
+            console.printf("%-10.2f %9.1f%% %9.1f%% %9.1f%%%n",
+                    threshold, percent(correct, n), percent(abstained, n), percent(wrong, n));
+        }
+    }
+
+    private List<String[]> loadSamples() throws IOException {
+        List<String[]> samples = new ArrayList<>();
+        try (InputStream is = labelledFile != null
+                ? new FileInputStream(labelledFile)
+                : IntentEvaluation.class.getResourceAsStream("/intents/labelled.txt")) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                samples.add(line.split("\\s+", 3));
+            }
+        }
+        return samples;
+    }
+
+    private static double percent(int count, int total) {
+        return total == 0 ? 0 : 100.0 * count / total;
+    }
+}
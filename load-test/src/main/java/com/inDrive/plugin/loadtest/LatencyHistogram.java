@@ -0,0 +1,77 @@
+package com.inDrive.plugin.loadtest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram in microseconds. Values below {@code 2^SUB_BUCKET_BITS} are
+ * counted exactly; above that every power of two is split into {@code 2^(SUB_BUCKET_BITS-1)}
+ * linear buckets, so percentiles carry at most about 3% relative error.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int EXACT_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_BUCKETS = EXACT_BUCKETS / 2;
+
+    private AtomicLongArray counts = new AtomicLongArray(EXACT_BUCKETS + (64 - SUB_BUCKET_BITS) * HALF_BUCKETS);
+    private AtomicLong totalCount = new AtomicLong();
+    private AtomicLong totalNanos = new AtomicLong();
+    private AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(bucketOf(micros));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public double getMeanMillis() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : totalNanos.get() / (count * 1e6);
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * @param percentile value between 0 and 100
+     * @return upper bound of the bucket holding the given percentile, in milliseconds
+     */
+    public double getPercentileMillis(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) return 0;
+
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= Math.max(rank, 1))
+                return Math.min(upperBoundOf(i) / 1000.0, getMaxMillis());
+        }
+
+        return getMaxMillis();
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < EXACT_BUCKETS) return (int) micros;
+
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS + 1;
+        int top = (int) (micros >>> shift);
+        return EXACT_BUCKETS + (shift - 1) * HALF_BUCKETS + (top - HALF_BUCKETS);
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < EXACT_BUCKETS) return bucket + 1;
+
+        int offset = bucket - EXACT_BUCKETS;
+        int shift = offset / HALF_BUCKETS + 1;
+        long top = offset % HALF_BUCKETS + HALF_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,270 @@
+package com.inDrive.plugin.loadtest;
+
+import com.inDrive.plugin.dialogue.Announcement;
+import com.inDrive.plugin.dialogue.CachingGeocoder;
+import com.inDrive.plugin.dialogue.ConversationState;
+import com.inDrive.plugin.dialogue.DialogueEngine;
+import com.inDrive.plugin.dialogue.EventPublisher;
+import com.inDrive.plugin.dialogue.FavouritePlaces;
+import com.inDrive.plugin.dialogue.Geocoder;
+import com.inDrive.plugin.dialogue.PlaceIndex;
+import com.inDrive.plugin.dialogue.SessionManager;
+import com.inDrive.plugin.dispatch.DriverDispatcher;
+import com.inDrive.plugin.dispatch.DriverPool;
+import com.inDrive.plugin.dispatch.DriverPosition;
+import com.inDrive.plugin.model.Driver;
+import com.inDrive.plugin.model.LocationCoordinate;
+import com.inDrive.plugin.model.Passenger;
+import com.inDrive.plugin.model.Vehicle;
+import com.inDrive.plugin.nlp.CachingNlpPipeline;
+import com.inDrive.plugin.nlp.FileModelLoader;
+import com.inDrive.plugin.nlp.NlpPipeline;
+import com.inDrive.plugin.nlp.OpenNlpPipeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * Replays rider transcripts through one shared {@link DialogueEngine} in parallel sessions
+ * managed by a {@link SessionManager}, with geocoding and routing served by a
+ * {@link StandInGraphhopperServer}, and reports per turn latency, throughput and heap growth.
+ *
+ * <pre>
+ * Options:
+ *   --conversations N   number of conversations to replay (default 1000)
+ *   --threads N         parallel sessions (default: available processors)
+ *   --latency MS        stand-in server response delay (default 30)
+ *   --jitter MS         random extra delay added to every response (default 20)
+ *   --speed-up X        factor applied to the ride progress timers (default 1000)
+ *   --transcripts FILE  transcript file instead of the bundled one
+ *   --nlp-cache N       sentences kept in the NLP result cache, 0 to disable (default 1024)
+ *   --geocode-cache N   places kept in the geocode cache, 0 to disable (default 256)
+ *   --drivers N         drivers placed at random around Pune for dispatch (default 300)
+ *   --dispatch MODE     pickup ETAs from the "matrix" or from parallel "routes" (default matrix)
+ * </pre>
+ */
+public class ReplayHarness {
+    private final PrintStream console = System.out;
+
+    private int conversations = 1000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long latencyMillis = 30;
+    private long jitterMillis = 20;
+    private double speedUp = 1000;
+    private String transcriptFile;
+    private int nlpCacheSize = 1024;
+    private int geocodeCacheSize = 256;
+    private int drivers = 300;
+    private String dispatchMode = "matrix";
+    private File modelsDir = new File(System.getProperty("nlp.models.dir", "."));
+
+    private LatencyHistogram turnLatency = new LatencyHistogram();
+    private AtomicLong announcements = new AtomicLong();
+    private AtomicInteger failedTurns = new AtomicInteger();
+    private CachingNlpPipeline nlpCache;
+    private CachingGeocoder geocodeCache;
+    private DriverDispatcher driverDispatcher;
+
+    public static void main(String[] args) throws Exception {
+        ReplayHarness harness = new ReplayHarness();
+        harness.parseArguments(args);
+        harness.run();
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--conversations": conversations = Integer.parseInt(value); break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--latency": latencyMillis = Long.parseLong(value); break;
+                case "--jitter": jitterMillis = Long.parseLong(value); break;
+                case "--speed-up": speedUp = Double.parseDouble(value); break;
+                case "--transcripts": transcriptFile = value; break;
+                case "--models": modelsDir = new File(value); break;
+                case "--nlp-cache": nlpCacheSize = Integer.parseInt(value); break;
+                case "--geocode-cache": geocodeCacheSize = Integer.parseInt(value); break;
+                case "--drivers": drivers = Integer.parseInt(value); break;
+                case "--dispatch": dispatchMode = value; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private void run() throws Exception {
+        List<List<String>> transcripts = Transcripts.load(transcriptFile);
+        StandInGraphhopperServer server = new StandInGraphhopperServer(latencyMillis, jitterMillis, threads * 2);
+        server.start();
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(threads * 2);
+        OkHttpClient okHttpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(threads * 2, 5, TimeUnit.MINUTES))
+                .build();
+        StandInNavigator navigator = new StandInNavigator(server.getBaseUrl(), okHttpClient);
+
+        ScheduledExecutorService timers = Executors.newScheduledThreadPool(2);
+        ScaledClock clock = new ScaledClock(timers, speedUp);
+        EventPublisher eventPublisher = new CountingEventPublisher();
+
+        // The engine and OpenNLP trace every stage on stdout, which would dominate the run.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        NlpPipeline pipeline = loadPipeline();
+        if (nlpCacheSize > 0)
+            pipeline = nlpCache = new CachingNlpPipeline(pipeline, nlpCacheSize);
+        Geocoder geocoder = navigator;
+        if (geocodeCacheSize > 0)
+            geocoder = geocodeCache = new CachingGeocoder(navigator, PlaceIndex.loadDefault(), geocodeCacheSize);
+        driverDispatcher = new DriverDispatcher(createDriverPool(), "routes".equals(dispatchMode) ? null : navigator, navigator);
+        DialogueEngine engine = new DialogueEngine(pipeline, geocoder, navigator, clock, eventPublisher,
+                new FavouritePlaces(), driverDispatcher);
+        SessionManager sessionManager = new SessionManager(clock, TimeUnit.MINUTES.toMillis(10), conversations,
+                engine::endConversation);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        long peakHeap = heapBefore;
+
+        long start = System.nanoTime();
+        List<Future<?>> sessions = new ArrayList<>(conversations);
+        for (int i = 0; i < conversations; i++) {
+            List<String> transcript = transcripts.get(i % transcripts.size());
+            Passenger passenger = new Passenger("Rider " + i, String.valueOf(9000000000L + i));
+            String riderId = passenger.getPassengerContact();
+            sessions.add(workers.submit(() -> {
+                ConversationState state = sessionManager.getSession(riderId, passenger);
+                replay(engine, state, transcript);
+                sessionManager.endSession(riderId);
+            }));
+        }
+        for (Future<?> session : sessions) {
+            session.get();
+            peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        long heapAfterRun = memory.getHeapMemoryUsage().getUsed();
+        System.gc();
+        long heapAfterGc = memory.getHeapMemoryUsage().getUsed();
+
+        System.setOut(console);
+        workers.shutdownNow();
+        timers.shutdownNow();
+        server.stop();
+        okHttpClient.dispatcher().executorService().shutdown();
+        okHttpClient.connectionPool().evictAll();
+
+        report(elapsedNanos, heapBefore, heapAfterRun, peakHeap, heapAfterGc);
+    }
+
+    private OpenNlpPipeline loadPipeline() {
+        OpenNlpPipeline pipeline = new OpenNlpPipeline(new FileModelLoader(modelsDir));
+        try {
+            pipeline.loadSentenceModel();
+            pipeline.loadTokenizerModel();
+            pipeline.loadPOSModel();
+            pipeline.loadLemmatizerModel();
+            pipeline.trainCategorizerModel();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        return pipeline;
+    }
+
+    /**
+     * Drivers spread at random, but the same for every run, over about 15 km around central Pune.
+     */
+    private DriverPool createDriverPool() {
+        DriverPool pool = new DriverPool();
+        Random random = new Random(41);
+        for (int i = 0; i < drivers; i++) {
+            Vehicle vehicle = new Vehicle(String.format("MH12 %04d", i), "Mini", "Celerio");
+            Driver driver = new Driver("Driver " + i, vehicle, String.valueOf(8000000000L + i), 3 + random.nextInt(3));
+            LocationCoordinate position = new LocationCoordinate(
+                    18.52 + 0.14 * (random.nextDouble() - 0.5),
+                    73.85 + 0.14 * (random.nextDouble() - 0.5));
+            pool.add(new DriverPosition(driver, position));
+        }
+        return pool;
+    }
+
+    private void replay(DialogueEngine engine, ConversationState state, List<String> transcript) {
+        for (String utterance : transcript) {
+            long turnStart = System.nanoTime();
+            try {
+                engine.getResponse(state, utterance);
+            } catch (Exception ex) {
+                failedTurns.incrementAndGet();
+            }
+            turnLatency.record(System.nanoTime() - turnStart);
+        }
+    }
+
+    private void report(long elapsedNanos, long heapBefore, long heapAfterRun, long peakHeap, long heapAfterGc) {
+        double seconds = elapsedNanos / 1e9;
+        console.printf("Conversations: %d on %d threads, stand-in latency %d+%d ms%n",
+                conversations, threads, latencyMillis, jitterMillis);
+        console.printf("Turns: %d (%d failed), announcements: %d%n",
+                turnLatency.getCount(), failedTurns.get(), announcements.get());
+        console.printf("Throughput: %.1f turns/s, %.1f conversations/s over %.2f s%n",
+                turnLatency.getCount() / seconds, conversations / seconds, seconds);
+        console.printf("Turn latency (ms): mean %.2f, p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+                turnLatency.getMeanMillis(),
+                turnLatency.getPercentileMillis(50),
+                turnLatency.getPercentileMillis(90),
+                turnLatency.getPercentileMillis(99),
+                turnLatency.getPercentileMillis(99.9),
+                turnLatency.getMaxMillis());
+        console.printf("Heap (MB): before %.1f, after run %.1f, peak %.1f, retained after GC %.1f (growth %+.1f)%n",
+                mb(heapBefore), mb(heapAfterRun), mb(peakHeap), mb(heapAfterGc), mb(heapAfterGc - heapBefore));
+        if (nlpCache != null)
+            console.printf("NLP cache: %d entries, hit rate %.1f%%, %d collisions, %d evictions, ~%.1f KB%n",
+                    nlpCache.size(), 100 * nlpCache.getHitRate(), nlpCache.getCollisions(),
+                    nlpCache.getEvictions(), nlpCache.getFootprintBytes() / 1024.0);
+        if (geocodeCache != null)
+            console.printf("Geocode cache: %d places, hit rate %.1f%% (%d fuzzy), %d geocode calls, %d not found%n",
+                    geocodeCache.size(), 100 * geocodeCache.getHitRate(), geocodeCache.getFuzzyHits(),
+                    geocodeCache.getMisses(), geocodeCache.getFailures());
+        console.printf("Dispatch: %d by matrix, %d by routes, %d estimated, %d of %d drivers free%n",
+                driverDispatcher.getMatrixDispatches(), driverDispatcher.getRouteDispatches(),
+                driverDispatcher.getEstimatedDispatches(), driverDispatcher.getPool().size(), drivers);
+    }
+
+    private static double mb(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    private class CountingEventPublisher implements EventPublisher {
+        @Override
+        public void publishAnnouncement(Announcement announcement) {
+            announcements.incrementAndGet();
+        }
+
+        @Override
+        public void publishDestinationReached(Announcement announcement) {
+            announcements.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.inDrive.plugin.loadtest;
+
+import com.inDrive.plugin.dialogue.Clock;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the engine's ride progress timers on a shared scheduler, with every delay divided by
+ * {@code speedUp} so a full ride plays out within a short replay.
+ */
+public class ScaledClock implements Clock {
+    private ScheduledExecutorService scheduler;
+    private double speedUp;
+
+    public ScaledClock(ScheduledExecutorService scheduler, double speedUp) {
+        this.scheduler = scheduler;
+        this.speedUp = speedUp;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void schedule(Runnable task, long delayMillis) {
+        scheduler.schedule(task, (long) (delayMillis / speedUp), TimeUnit.MILLISECONDS);
+    }
+}
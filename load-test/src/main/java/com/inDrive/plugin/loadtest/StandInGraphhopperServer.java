@@ -0,0 +1,183 @@
+package com.inDrive.plugin.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inDrive.plugin.model.LocationCoordinate;
+import com.inDrive.plugin.model.Route;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stand-in for the GraphHopper geocode, route and matrix APIs. Replays the canned responses under
+ * {@code graphhopper/} after a configurable delay, so the booking flow can be driven without
+ * network access or API quota.
+ *
+ * Forward geocode queries are answered with {@code graphhopper/geocode/<query>.json} when it
+ * exists, otherwise with {@code default.json}. Routes through more than two points are answered
+ * with {@code route_via.json}, which has one via point. Matrix times are computed from the straight
+ * line distance between the points, at city speed and with a detour factor.
+ */
+public class StandInGraphhopperServer {
+    private static final String RESOURCE_ROOT = "/graphhopper/";
+
+    // Matrix times: road distance over straight line distance, and average speed in m/s.
+    private static final double DETOUR_FACTOR = 1.3;
+    private static final double METERS_PER_SECOND = 6.5;
+
+    private HttpServer server;
+    private ExecutorService executorService;
+    private long latencyMillis;
+    private long jitterMillis;
+
+    private Map<String, byte[]> responseCache = new ConcurrentHashMap<>();
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    public StandInGraphhopperServer(long latencyMillis, long jitterMillis, int threads) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+
+        executorService = Executors.newFixedThreadPool(threads);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/1/geocode", this::handleGeocode);
+        server.createContext("/api/1/route", this::handleRoute);
+        server.createContext("/api/1/matrix", this::handleMatrix);
+        server.setExecutor(executorService);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+
+    public String getBaseUrl() {
+        return String.format("http://127.0.0.1:%d/api/1", server.getAddress().getPort());
+    }
+
+    private void handleGeocode(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        if (Boolean.parseBoolean(params.get("reverse"))) {
+            respond(exchange, "geocode/reverse.json");
+            return;
+        }
+
+        String query = params.getOrDefault("q", "").trim().toLowerCase(Locale.ROOT).replace(' ', '_');
+        String resource = "geocode/" + query + ".json";
+        if (StandInGraphhopperServer.class.getResource(RESOURCE_ROOT + resource) == null)
+            resource = "geocode/default.json";
+
+        respond(exchange, resource);
+    }
+
+    private void handleRoute(HttpExchange exchange) throws IOException {
+        // respond() closes the request body.
+        Map<?, ?> request = objectMapper.readValue(exchange.getRequestBody().readAllBytes(), Map.class);
+
+        List<?> points = (List<?>) request.get("points");
+        respond(exchange, points != null && points.size() > 2 ? "route_via.json" : "route.json");
+    }
+
+    private void handleMatrix(HttpExchange exchange) throws IOException {
+        Map<?, ?> request;
+        try (InputStream requestBody = exchange.getRequestBody()) {
+            request = objectMapper.readValue(requestBody.readAllBytes(), Map.class);
+        }
+
+        List<LocationCoordinate> from = toCoordinates((List<?>) request.get("from_points"));
+        List<LocationCoordinate> to = toCoordinates((List<?>) request.get("to_points"));
+        List<List<Double>> times = new ArrayList<>(from.size());
+        for (LocationCoordinate origin : from) {
+            List<Double> row = new ArrayList<>(to.size());
+            for (LocationCoordinate destination : to)
+                row.add(Math.rint(DETOUR_FACTOR * Route.straightLineDistance(origin, destination) / METERS_PER_SECOND));
+            times.add(row);
+        }
+
+        simulateLatency();
+        send(exchange, objectMapper.writeValueAsBytes(Map.of("times", times)));
+    }
+
+    private void respond(HttpExchange exchange, String resource) throws IOException {
+        try (InputStream requestBody = exchange.getRequestBody()) {
+            requestBody.readAllBytes();
+        }
+
+        simulateLatency();
+        send(exchange, responseCache.computeIfAbsent(resource, this::readResource));
+    }
+
+    private void send(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private void simulateLatency() {
+        long delay = latencyMillis;
+        if (jitterMillis > 0)
+            delay += ThreadLocalRandom.current().nextLong(jitterMillis + 1);
+        if (delay <= 0) return;
+
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private byte[] readResource(String resource) {
+        try (InputStream is = StandInGraphhopperServer.class.getResourceAsStream(RESOURCE_ROOT + resource)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            is.transferTo(out);
+            return out.toByteArray();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    // Points are [longitude, latitude].
+    private static List<LocationCoordinate> toCoordinates(List<?> points) {
+        List<LocationCoordinate> coordinates = new ArrayList<>(points.size());
+        for (Object point : points) {
+            List<?> lonLat = (List<?>) point;
+            coordinates.add(new LocationCoordinate(((Number) lonLat.get(1)).doubleValue(), ((Number) lonLat.get(0)).doubleValue()));
+        }
+        return coordinates;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new ConcurrentHashMap<>();
+        if (rawQuery == null) return params;
+
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator <= 0) continue;
+            params.put(
+                    URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8)
+            );
+        }
+
+        return params;
+    }
+}
@@ -0,0 +1,241 @@
+package com.inDrive.plugin.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inDrive.plugin.dialogue.Geocoder;
+import com.inDrive.plugin.dialogue.Router;
+import com.inDrive.plugin.dispatch.EtaProvider;
+import com.inDrive.plugin.model.Location;
+import com.inDrive.plugin.model.LocationCoordinate;
+import com.inDrive.plugin.model.Route;
+import com.inDrive.plugin.navigation.graphhopper.response.direction.DirectionResponse;
+import com.inDrive.plugin.navigation.graphhopper.response.geocode.Geocode;
+import com.inDrive.plugin.navigation.graphhopper.response.geocode.GeocodeResponse;
+import com.inDrive.plugin.navigation.graphhopper.response.matrix.MatrixResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * {@link Geocoder}, {@link Router} and {@link EtaProvider} talking to a
+ * {@link StandInGraphhopperServer} the same way the app's NavigationProvider talks to GraphHopper.
+ */
+public class StandInNavigator implements Geocoder, Router, EtaProvider {
+    private static final MediaType MEDIA_TYPE_JSON = MediaType.get("application/json; charset=utf-8");
+
+    // Shivajinagar, Pune. Stands in for the device's last known location.
+    private static final double CURRENT_LATITUDE = 18.5308;
+    private static final double CURRENT_LONGITUDE = 73.8475;
+
+    private String baseUrl;
+    private OkHttpClient okHttpClient;
+    private ObjectMapper objectMapper;
+
+    public StandInNavigator(String baseUrl, OkHttpClient okHttpClient) {
+        this.baseUrl = baseUrl;
+        this.okHttpClient = okHttpClient;
+        this.objectMapper = new ObjectMapper();
+    }
+
+    @Override
+    public Optional<Location> getCurrentLocation() {
+        return getLocation(CURRENT_LATITUDE, CURRENT_LONGITUDE);
+    }
+
+    @Override
+    public Optional<Location> getLocation(String place) {
+        return geocode(geocodeUrl(place));
+    }
+
+    @Override
+    public Optional<Location> getLocation(double latitude, double longitude) {
+        return geocode(reverseGeocodeUrl(latitude, longitude));
+    }
+
+    @Override
+    public List<Optional<Location>> getLocations(List<String> places) {
+        List<HttpUrl> urls = new ArrayList<>(places.size());
+        for (String place : places)
+            urls.add(geocodeUrl(place));
+        return geocodeAll(urls);
+    }
+
+    @Override
+    public List<Optional<Location>> getLocationsAt(List<LocationCoordinate> points) {
+        List<HttpUrl> urls = new ArrayList<>(points.size());
+        for (LocationCoordinate point : points)
+            urls.add(reverseGeocodeUrl(point.getLatitude(), point.getLongitude()));
+        return geocodeAll(urls);
+    }
+
+    @Override
+    public Optional<DirectionResponse> getDirections(String from, String to) {
+        List<Optional<Location>> ends = getLocations(List.of(from, to));
+        Optional<Location> fromLocation = ends.get(0);
+        Optional<Location> toLocation = ends.get(1);
+        if (!fromLocation.isPresent() || !toLocation.isPresent())
+            return Optional.empty();
+
+        return route(List.of(toPoint(fromLocation.get()), toPoint(toLocation.get())), false);
+    }
+
+    @Override
+    public Optional<DirectionResponse> getDirections(LocationCoordinate from, LocationCoordinate to) {
+        return route(List.of(toPoint(from), toPoint(to)), false);
+    }
+
+    @Override
+    public Optional<long[]> getTravelTimes(List<LocationCoordinate> origins, LocationCoordinate destination) {
+        List<List<Double>> points = new ArrayList<>(origins.size());
+        for (LocationCoordinate origin : origins)
+            points.add(toPoint(origin));
+
+        try {
+            String body = objectMapper.writeValueAsString(Map.of(
+                    "from_points", points,
+                    "to_points", List.of(toPoint(destination)),
+                    "out_arrays", List.of("times")));
+            Request request = new Request.Builder()
+                    .url(baseUrl + "/matrix")
+                    .post(RequestBody.create(body, MEDIA_TYPE_JSON))
+                    .build();
+            try (Response response = okHttpClient.newCall(request).execute()) {
+                if (!response.isSuccessful()) return Optional.empty();
+                MatrixResponse matrix = objectMapper.readValue(response.body().string(), MatrixResponse.class);
+                if (matrix.getTimes() == null || matrix.getTimes().size() != origins.size())
+                    return Optional.empty();
+
+                long[] times = new long[origins.size()];
+                for (int i = 0; i < times.length; i++) {
+                    Double seconds = matrix.getTimes().get(i).get(0);
+                    times[i] = seconds == null ? -1 : Math.round(seconds * 1000);
+                }
+                return Optional.of(times);
+            }
+        } catch (IOException ex) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<Route> getRoute(List<Location> stops) {
+        List<List<Double>> points = new ArrayList<>(stops.size());
+        for (Location stop : stops)
+            points.add(toPoint(stop));
+        Optional<DirectionResponse> response = route(points, true);
+        if (!response.isPresent() || response.get().getPaths() == null || response.get().getPaths().isEmpty())
+            return Optional.empty();
+        return Optional.of(Route.fromPath(stops, response.get().getPaths().get(0)));
+    }
+
+    private Optional<DirectionResponse> route(List<List<Double>> points, boolean instructions) {
+        try {
+            String body = objectMapper.writeValueAsString(Map.of("points", points, "instructions", instructions));
+            Request request = new Request.Builder()
+                    .url(baseUrl + "/route")
+                    .post(RequestBody.create(body, MEDIA_TYPE_JSON))
+                    .build();
+            try (Response response = okHttpClient.newCall(request).execute()) {
+                if (!response.isSuccessful()) return Optional.empty();
+                return Optional.of(objectMapper.readValue(response.body().string(), DirectionResponse.class));
+            }
+        } catch (IOException ex) {
+            return Optional.empty();
+        }
+    }
+
+    private HttpUrl geocodeUrl(String place) {
+        return HttpUrl.get(baseUrl + "/geocode").newBuilder()
+                .addQueryParameter("q", place.trim())
+                .addQueryParameter("limit", "1")
+                .addQueryParameter("reverse", "false")
+                .build();
+    }
+
+    private HttpUrl reverseGeocodeUrl(double latitude, double longitude) {
+        return HttpUrl.get(baseUrl + "/geocode").newBuilder()
+                .addQueryParameter("point", latitude + "," + longitude)
+                .addQueryParameter("limit", "1")
+                .addQueryParameter("reverse", "true")
+                .build();
+    }
+
+    private Optional<Location> geocode(HttpUrl url) {
+        Request request = new Request.Builder().url(url).get().build();
+        try (Response response = okHttpClient.newCall(request).execute()) {
+            return toLocation(response);
+        } catch (IOException ex) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Send the distinct urls concurrently, as many at a time as the client's dispatcher allows
+     * per host, and wait for all of them.
+     */
+    private List<Optional<Location>> geocodeAll(List<HttpUrl> urls) {
+        Map<HttpUrl, CompletableFuture<Optional<Location>>> calls = new LinkedHashMap<>();
+        for (HttpUrl url : urls) {
+            if (calls.containsKey(url)) continue;
+            CompletableFuture<Optional<Location>> result = new CompletableFuture<>();
+            calls.put(url, result);
+            okHttpClient.newCall(new Request.Builder().url(url).get().build()).enqueue(new Callback() {
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try (Response received = response) {
+                        result.complete(toLocation(received));
+                    } catch (IOException ex) {
+                        result.complete(Optional.empty());
+                    }
+                }
+
+                @Override
+                public void onFailure(Call call, IOException ex) {
+                    result.complete(Optional.empty());
+                }
+            });
+        }
+
+        List<Optional<Location>> locations = new ArrayList<>(urls.size());
+        for (HttpUrl url : urls)
+            locations.add(calls.get(url).join());
+        return locations;
+    }
+
+    private Optional<Location> toLocation(Response response) throws IOException {
+        if (!response.isSuccessful()) return Optional.empty();
+
+        GeocodeResponse geocodeResponse = objectMapper.readValue(response.body().string(), GeocodeResponse.class);
+        if (geocodeResponse.getHits() == null || geocodeResponse.getHits().isEmpty())
+            return Optional.empty();
+
+        Geocode geoCode = geocodeResponse.getHits().get(0);
+        Location location = new Location();
+        location.setLocationName(geoCode.getName() != null && !geoCode.getName().isEmpty()
+                ? geoCode.getName()
+                : geoCode.getStreet());
+        location.setLocationCoordinates(new LocationCoordinate(geoCode.getPoint().getLatitude(), geoCode.getPoint().getLongitude()));
+        return Optional.of(location);
+    }
+
+    private static List<Double> toPoint(Location location) {
+        return toPoint(location.getLocationCoordinates());
+    }
+
+    private static List<Double> toPoint(LocationCoordinate coordinate) {
+        return List.of(coordinate.getLongitude(), coordinate.getLatitude());
+    }
+}
@@ -0,0 +1,56 @@
+package com.inDrive.plugin.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads rider transcripts: one utterance per line, conversations separated by blank lines and
+ * lines starting with {@code #} ignored.
+ */
+final class Transcripts {
+    static final String DEFAULT_RESOURCE = "/transcripts/booking.txt";
+
+    private Transcripts() {
+    }
+
+    static List<List<String>> load(String file) throws IOException {
+        if (file == null) {
+            try (InputStream is = Transcripts.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+                return parse(is);
+            }
+        }
+
+        try (InputStream is = Files.newInputStream(Path.of(file))) {
+            return parse(is);
+        }
+    }
+
+    private static List<List<String>> parse(InputStream is) throws IOException {
+        List<List<String>> conversations = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.startsWith("#")) continue;
+
+            if (line.isEmpty()) {
+                if (!current.isEmpty()) conversations.add(current);
+                current = new ArrayList<>();
+                continue;
+            }
+            current.add(line);
+        }
+        if (!current.isEmpty()) conversations.add(current);
+
+        return conversations;
+    }
+}
@@ -0,0 +1,258 @@
+package com.inDrive.plugin.nlp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link NlpPipeline} that remembers the {@link #analyze(String)} result of recent sentences, so
+ * phrases riders repeat all the time ("what is the OTP") skip inference entirely. Sentences are
+ * keyed by a 64-bit FNV-1a hash of their whitespace-normalized text; the text is kept with each
+ * entry to rule out hash collisions. Case is not normalized since the POS tagger depends on it.
+ * The least recently used entry is evicted once the cache is full.
+ * <p>
+ * Returned arrays are shared between callers and must not be modified.
+ */
+public class CachingNlpPipeline implements NlpPipeline {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Rough per-object sizes on a 64-bit JVM with compressed oops.
+    private static final int OBJECT_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int MAP_ENTRY_BYTES = 40 + 16;
+
+    private NlpPipeline delegate;
+    private int maxEntries;
+    private LinkedHashMap<Long, CachedAnalysis> entries;
+
+    private long hits;
+    private long misses;
+    private long collisions;
+    private long evictions;
+    private long footprintBytes;
+    // Bumped by clear(), so results computed before it are not cached after it.
+    private long generation;
+
+    public CachingNlpPipeline(NlpPipeline delegate, int maxEntries) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Long, CachedAnalysis>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedAnalysis> eldest) {
+                if (size() <= CachingNlpPipeline.this.maxEntries) return false;
+                footprintBytes -= eldest.getValue().footprintBytes;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public SentenceAnalysis analyze(String sentence) {
+        String text = normalize(sentence);
+        long key = hash(text);
+
+        long lookupGeneration;
+        synchronized (this) {
+            CachedAnalysis entry = entries.get(key);
+            if (entry != null && entry.text.equals(text)) {
+                hits++;
+                return entry.analysis;
+            }
+            if (entry != null) collisions++;
+            misses++;
+            lookupGeneration = generation;
+        }
+
+        // Inference runs outside the lock; two riders missing on the same sentence both compute it.
+        SentenceAnalysis analysis = delegate.analyze(text);
+        CachedAnalysis entry = new CachedAnalysis(text, analysis);
+        synchronized (this) {
+            if (lookupGeneration != generation) return analysis;
+            CachedAnalysis previous = entries.put(key, entry);
+            if (previous != null) footprintBytes -= previous.footprintBytes;
+            footprintBytes += entry.footprintBytes;
+        }
+        return analysis;
+    }
+
+    @Override
+    public List<SentenceAnalysis> analyzeAll(String[] sentences) {
+        String[] texts = new String[sentences.length];
+        long[] keys = new long[sentences.length];
+        SentenceAnalysis[] analyses = new SentenceAnalysis[sentences.length];
+        List<Integer> missing = new ArrayList<>();
+
+        long lookupGeneration;
+        synchronized (this) {
+            for (int i = 0; i < sentences.length; i++) {
+                texts[i] = normalize(sentences[i]);
+                keys[i] = hash(texts[i]);
+                CachedAnalysis entry = entries.get(keys[i]);
+                if (entry != null && entry.text.equals(texts[i])) {
+                    hits++;
+                    analyses[i] = entry.analysis;
+                    continue;
+                }
+                if (entry != null) collisions++;
+                misses++;
+                missing.add(i);
+            }
+            lookupGeneration = generation;
+        }
+
+        if (!missing.isEmpty()) {
+            String[] missingTexts = new String[missing.size()];
+            for (int i = 0; i < missingTexts.length; i++)
+                missingTexts[i] = texts[missing.get(i)];
+            List<SentenceAnalysis> computed = delegate.analyzeAll(missingTexts);
+            synchronized (this) {
+                for (int i = 0; i < missingTexts.length; i++) {
+                    int index = missing.get(i);
+                    analyses[index] = computed.get(i);
+                    if (lookupGeneration != generation) continue;
+                    CachedAnalysis entry = new CachedAnalysis(texts[index], analyses[index]);
+                    CachedAnalysis previous = entries.put(keys[index], entry);
+                    if (previous != null) footprintBytes -= previous.footprintBytes;
+                    footprintBytes += entry.footprintBytes;
+                }
+            }
+        }
+
+        List<SentenceAnalysis> result = new ArrayList<>(analyses.length);
+        for (SentenceAnalysis analysis : analyses)
+            result.add(analysis);
+        return result;
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        footprintBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getCollisions() {
+        return collisions;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * @return estimated heap used by the cached entries, in bytes
+     */
+    public synchronized long getFootprintBytes() {
+        return footprintBytes;
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return delegate.isInitialized();
+    }
+
+    @Override
+    public String[] detectSentences(String text) {
+        return delegate.detectSentences(text);
+    }
+
+    @Override
+    public String[] tokenize(String sentence) {
+        return delegate.tokenize(sentence);
+    }
+
+    @Override
+    public String[] tagPOS(String[] tokens) {
+        return delegate.tagPOS(tokens);
+    }
+
+    @Override
+    public String[] lemmatize(String[] tokens, String[] posTags) {
+        return delegate.lemmatize(tokens, posTags);
+    }
+
+    @Override
+    public double[] categorize(String[] lemmas) {
+        return delegate.categorize(lemmas);
+    }
+
+    @Override
+    public String getBestCategory(double[] outcomes) {
+        return delegate.getBestCategory(outcomes);
+    }
+
+    @Override
+    public String getCategory(int index) {
+        return delegate.getCategory(index);
+    }
+
+    @Override
+    public int getNumberOfCategories() {
+        return delegate.getNumberOfCategories();
+    }
+
+    static String normalize(String sentence) {
+        return sentence.trim().replaceAll("\\s+", " ");
+    }
+
+    static long hash(String text) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static class CachedAnalysis {
+        private String text;
+        private SentenceAnalysis analysis;
+        private long footprintBytes;
+
+        CachedAnalysis(String text, SentenceAnalysis analysis) {
+            this.text = text;
+            this.analysis = analysis;
+            this.footprintBytes = MAP_ENTRY_BYTES
+                    + OBJECT_HEADER_BYTES + 3 * REFERENCE_BYTES + 8
+                    + sizeOf(text)
+                    + OBJECT_HEADER_BYTES + 5 * REFERENCE_BYTES
+                    + sizeOf(analysis.getTokens())
+                    + sizeOf(analysis.getPosTags())
+                    + sizeOf(analysis.getLemmas())
+                    + OBJECT_HEADER_BYTES + 8L * analysis.getCategoryDistribution().length
+                    // Category names are shared by every analysis of the same model.
+                    + OBJECT_HEADER_BYTES + (long) REFERENCE_BYTES * analysis.getCategories().length;
+        }
+
+        private static long sizeOf(String text) {
+            return 2 * OBJECT_HEADER_BYTES + 8 + text.length();
+        }
+
+        private static long sizeOf(String[] strings) {
+            long bytes = OBJECT_HEADER_BYTES + (long) REFERENCE_BYTES * strings.length;
+            for (String s : strings)
+                bytes += sizeOf(s);
+            return bytes;
+        }
+    }
+}
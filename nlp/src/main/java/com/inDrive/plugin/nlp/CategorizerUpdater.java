@@ -0,0 +1,213 @@
+package com.inDrive.plugin.nlp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.doccat.DocumentSample;
+import opennlp.tools.util.CollectionObjectStream;
+import opennlp.tools.util.ObjectStream;
+
+/**
+ * Retrains the intent categorizer of an {@link OpenNlpPipeline} when additional training samples
+ * show up in app storage, so new phrasings do not need a new APK. The samples file uses the
+ * format of faq_categorizer.txt ({@code <category> <text>} per line) and is trained together
+ * with the bundled data on a single low priority background thread.
+ * <p>
+ * Every fifth additional sample is held out and, together with the bundled holdout set, used to
+ * validate the candidate model against the live one. The candidate is swapped in only if it is
+ * at least as accurate and not much slower; otherwise, or if training fails, the live model is
+ * kept. {@link #rollback()} restores the model that was live before the last swap.
+ */
+public class CategorizerUpdater {
+    public static final String HOLDOUT_DATA = "faq_categorizer_holdout.txt";
+
+    private static final int HOLDOUT_EVERY = 5;
+    private static final double MAX_SLOWDOWN = 1.5;
+    // Timing passes over the holdout set, so a single GC pause does not reject a model.
+    private static final int TIMING_ROUNDS = 20;
+
+    private OpenNlpPipeline pipeline;
+    private ModelLoader modelLoader;
+    private File samplesFile;
+
+    private ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "categorizer-updater");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.setDaemon(true);
+        return thread;
+    });
+    private List<Runnable> modelChangedListeners = new CopyOnWriteArrayList<>();
+
+    // Accessed only from the executor thread.
+    private long trainedSamplesLastModified = -1;
+    private long trainedSamplesLength = -1;
+    private DoccatModel previousModel;
+
+    public CategorizerUpdater(OpenNlpPipeline pipeline, ModelLoader modelLoader, File samplesFile) {
+        this.pipeline = pipeline;
+        this.modelLoader = modelLoader;
+        this.samplesFile = samplesFile;
+    }
+
+    /**
+     * Run when a new model has been swapped in or rolled back, e.g. to invalidate cached results.
+     */
+    public void addModelChangedListener(Runnable listener) {
+        modelChangedListeners.add(listener);
+    }
+
+    /**
+     * Check the samples file every {@code periodMillis}, starting now.
+     */
+    public void start(long periodMillis) {
+        executor.scheduleWithFixedDelay(this::updateSafely, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return resolves to true if a new model was swapped in
+     */
+    public Future<Boolean> requestUpdate() {
+        return executor.submit(this::update);
+    }
+
+    public Future<Boolean> rollback() {
+        return executor.submit(() -> {
+            DoccatModel current = pipeline.getCategorizerModel();
+            if (previousModel == null || !pipeline.replaceCategorizerModel(current, previousModel))
+                return false;
+            System.out.println("Categorizer rolled back to the previous model");
+            previousModel = null;
+            // Retrain from the samples on the next check.
+            trainedSamplesLastModified = -1;
+            notifyModelChanged();
+            return true;
+        });
+    }
+
+    private void updateSafely() {
+        try {
+            update();
+        } catch (Exception ex) {
+            // Keep the live model and the schedule; the next check retries.
+            System.out.println("Categorizer update failed: " + ex);
+        }
+    }
+
+    private boolean update() throws IOException {
+        DoccatModel current = pipeline.getCategorizerModel();
+        if (current == null || !samplesFile.isFile()) return false;
+        long lastModified = samplesFile.lastModified();
+        long length = samplesFile.length();
+        if (lastModified == trainedSamplesLastModified && length == trainedSamplesLength) return false;
+
+        List<DocumentSample> trainingSamples = new ArrayList<>();
+        List<DocumentSample> holdoutSamples = new ArrayList<>();
+        try (InputStream is = modelLoader.open(OpenNlpPipeline.CATEGORIZER_TRAINING_DATA)) {
+            trainingSamples.addAll(readSamples(is));
+        }
+        try (InputStream is = modelLoader.open(HOLDOUT_DATA)) {
+            holdoutSamples.addAll(readSamples(is));
+        } catch (IOException ex) {
+            System.out.println("No bundled categorizer holdout set: " + ex.getMessage());
+        }
+        List<DocumentSample> additionalSamples;
+        try (InputStream is = new FileInputStream(samplesFile)) {
+            additionalSamples = readSamples(is);
+        }
+        for (int i = 0; i < additionalSamples.size(); i++) {
+            if (i % HOLDOUT_EVERY == HOLDOUT_EVERY - 1)
+                holdoutSamples.add(additionalSamples.get(i));
+            else
+                trainingSamples.add(additionalSamples.get(i));
+        }
+
+        DoccatModel candidate;
+        try (ObjectStream<DocumentSample> samples = new CollectionObjectStream<>(trainingSamples)) {
+            candidate = OpenNlpPipeline.trainCategorizer(samples);
+        }
+
+        Validation live = validate(current, holdoutSamples);
+        Validation trained = validate(candidate, holdoutSamples);
+        System.out.printf("Categorizer validation on %d samples: live %.3f in %d ns, candidate %.3f in %d ns%n",
+                holdoutSamples.size(), live.accuracy, live.nanosPerSample, trained.accuracy, trained.nanosPerSample);
+        // Only now are the samples handled; if training or validation fails, the next check retries.
+        trainedSamplesLastModified = lastModified;
+        trainedSamplesLength = length;
+        if (trained.accuracy < live.accuracy || trained.nanosPerSample > live.nanosPerSample * MAX_SLOWDOWN) {
+            System.out.println("Categorizer candidate rejected, keeping the live model");
+            return false;
+        }
+
+        if (!pipeline.replaceCategorizerModel(current, candidate)) return false;
+        previousModel = current;
+        notifyModelChanged();
+        return true;
+    }
+
+    private void notifyModelChanged() {
+        for (Runnable listener : modelChangedListeners)
+            listener.run();
+    }
+
+    private static Validation validate(DoccatModel model, List<DocumentSample> samples) {
+        DocumentCategorizerME categorizer = new DocumentCategorizerME(model);
+        // Warm up so the first model measured is not penalized.
+        for (DocumentSample sample : samples)
+            categorizer.categorize(sample.getText());
+
+        int correct = 0;
+        for (DocumentSample sample : samples) {
+            String category = categorizer.getBestCategory(categorizer.categorize(sample.getText()));
+            if (category.equals(sample.getCategory())) correct++;
+        }
+
+        long start = System.nanoTime();
+        for (int round = 0; round < TIMING_ROUNDS; round++) {
+            for (DocumentSample sample : samples)
+                categorizer.categorize(sample.getText());
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Validation validation = new Validation();
+        validation.accuracy = samples.isEmpty() ? 1.0 : (double) correct / samples.size();
+        validation.nanosPerSample = samples.isEmpty() ? 0 : elapsed / ((long) TIMING_ROUNDS * samples.size());
+        return validation;
+    }
+
+    private static List<DocumentSample> readSamples(InputStream is) throws IOException {
+        List<DocumentSample> samples = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens.length < 2 || tokens[0].startsWith("#")) continue;
+            String[] text = new String[tokens.length - 1];
+            System.arraycopy(tokens, 1, text, 0, text.length);
+            samples.add(new DocumentSample(tokens[0], text));
+        }
+        return samples;
+    }
+
+    private static class Validation {
+        private double accuracy;
+        private long nanosPerSample;
+    }
+}
@@ -0,0 +1,30 @@
+package com.inDrive.plugin.nlp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import opennlp.tools.doccat.FeatureGenerator;
+
+/**
+ * Character n-grams of every token, with word boundary markers, so a misrecognized word still
+ * shares most of its features with the word that was meant ("cancle" and "cancel").
+ */
+public class CharacterNgramFeatureGenerator implements FeatureGenerator {
+    private static final int MIN_LENGTH = 3;
+    private static final int MAX_LENGTH = 4;
+
+    @Override
+    public Collection<String> extractFeatures(String[] text, Map<String, Object> extraInformation) {
+        List<String> features = new ArrayList<>();
+        for (String token : text) {
+            String word = "^" + token.toLowerCase() + "$";
+            for (int n = MIN_LENGTH; n <= MAX_LENGTH; n++) {
+                for (int i = 0; i + n <= word.length(); i++)
+                    features.add("cng=" + word.substring(i, i + n));
+            }
+        }
+        return features;
+    }
+}
@@ -0,0 +1,190 @@
+package com.inDrive.plugin.nlp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Small-footprint alternative to the maxent categorizer for low-memory devices. Unigrams and
+ * bigrams of the lemmas are hashed into a fixed number of buckets; each bucket holds one 8-bit
+ * weight per category, scaled by a per-category factor. The weights are read straight from a
+ * (memory-mapped) buffer, so apart from the category names the model takes no heap. Models are
+ * built by {@link CompactIntentModelTrainer}.
+ * <p>
+ * File layout, big endian: magic, bucket bits, category count, then per category its UTF-8 name
+ * (short length prefixed), then per category its scale and bias as floats, then the weights as
+ * bytes, bucket major.
+ */
+public class CompactIntentModel implements IntentCategorizer {
+    public static final String MODEL = "intent_compact.bin";
+
+    static final int MAGIC = 0x49434d31;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long BIGRAM_SEED = 0x9e3779b97f4a7c15L;
+
+    private ByteBuffer weights;
+    private int bucketMask;
+    private String[] categories;
+    private float[] scales;
+    private float[] biases;
+
+    private CompactIntentModel(ByteBuffer weights, int bucketBits, String[] categories, float[] scales, float[] biases) {
+        this.weights = weights;
+        this.bucketMask = (1 << bucketBits) - 1;
+        this.categories = categories;
+        this.scales = scales;
+        this.biases = biases;
+    }
+
+    public static CompactIntentModel load(ModelLoader modelLoader) throws IOException {
+        return load(modelLoader.map(MODEL));
+    }
+
+    public static CompactIntentModel load(ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.duplicate();
+        if (in.getInt() != MAGIC)
+            throw new IOException("Not a compact intent model");
+        int bucketBits = in.getInt();
+        int categoryCount = in.getInt();
+
+        String[] categories = new String[categoryCount];
+        for (int c = 0; c < categoryCount; c++) {
+            byte[] name = new byte[in.getShort()];
+            in.get(name);
+            categories[c] = new String(name, StandardCharsets.UTF_8);
+        }
+        float[] scales = new float[categoryCount];
+        float[] biases = new float[categoryCount];
+        for (int c = 0; c < categoryCount; c++) {
+            scales[c] = in.getFloat();
+            biases[c] = in.getFloat();
+        }
+
+        if (in.remaining() != (long) categoryCount << bucketBits)
+            throw new IOException("Truncated compact intent model");
+        return new CompactIntentModel(in.slice(), bucketBits, categories, scales, biases);
+    }
+
+    @Override
+    public double[] categorize(String[] lemmas) {
+        int categoryCount = categories.length;
+        int[] sums = new int[categoryCount];
+        long[] features = features(lemmas);
+        for (long feature : features) {
+            int offset = bucket(feature, bucketMask) * categoryCount;
+            int sign = sign(feature);
+            for (int c = 0; c < categoryCount; c++)
+                sums[c] += sign * weights.get(offset + c);
+        }
+
+        double[] scores = new double[categoryCount];
+        for (int c = 0; c < categoryCount; c++)
+            scores[c] = biases[c] + scales[c] * sums[c];
+        return softmax(scores);
+    }
+
+    /**
+     * Hypotheses of one utterance share most of their words, so each bucket row is read from the
+     * mapped weights once for the whole batch.
+     */
+    @Override
+    public double[][] categorize(String[][] lemmas) {
+        int categoryCount = categories.length;
+        Map<Integer, int[]> rows = new HashMap<>();
+        double[][] outcomes = new double[lemmas.length][];
+        for (int i = 0; i < lemmas.length; i++) {
+            int[] sums = new int[categoryCount];
+            for (long feature : features(lemmas[i])) {
+                int bucket = bucket(feature, bucketMask);
+                int[] row = rows.get(bucket);
+                if (row == null) {
+                    row = new int[categoryCount];
+                    for (int c = 0; c < categoryCount; c++)
+                        row[c] = weights.get(bucket * categoryCount + c);
+                    rows.put(bucket, row);
+                }
+                int sign = sign(feature);
+                for (int c = 0; c < categoryCount; c++)
+                    sums[c] += sign * row[c];
+            }
+
+            double[] scores = new double[categoryCount];
+            for (int c = 0; c < categoryCount; c++)
+                scores[c] = biases[c] + scales[c] * sums[c];
+            outcomes[i] = softmax(scores);
+        }
+        return outcomes;
+    }
+
+    @Override
+    public String[] getCategories() {
+        return categories;
+    }
+
+    public int getBucketCount() {
+        return bucketMask + 1;
+    }
+
+    /**
+     * @return one hash per unigram and bigram of the lowercased tokens
+     */
+    static long[] features(String[] tokens) {
+        long[] features = new long[tokens.length == 0 ? 0 : 2 * tokens.length - 1];
+        long previous = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            long unigram = hash(tokens[i]);
+            features[i] = mix(unigram);
+            if (i > 0)
+                features[tokens.length + i - 1] = mix(previous * FNV_PRIME ^ unigram ^ BIGRAM_SEED);
+            previous = unigram;
+        }
+        return features;
+    }
+
+    static int bucket(long feature, int bucketMask) {
+        return (int) feature & bucketMask;
+    }
+
+    // Signed hashing: colliding features cancel out on average instead of adding up.
+    static int sign(long feature) {
+        return feature < 0 ? -1 : 1;
+    }
+
+    static double[] softmax(double[] scores) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double score : scores)
+            max = Math.max(max, score);
+        double sum = 0;
+        double[] probabilities = new double[scores.length];
+        for (int i = 0; i < scores.length; i++) {
+            probabilities[i] = Math.exp(scores[i] - max);
+            sum += probabilities[i];
+        }
+        for (int i = 0; i < probabilities.length; i++)
+            probabilities[i] /= sum;
+        return probabilities;
+    }
+
+    private static long hash(String token) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < token.length(); i++) {
+            hash ^= Character.toLowerCase(token.charAt(i));
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    // Final mix of MurmurHash3, so low bits used for the bucket depend on every input bit.
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,140 @@
+package com.inDrive.plugin.nlp;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Trains a {@link CompactIntentModel} with softmax regression over hashed features and writes
+ * it 8-bit quantized. Training data uses the format of faq_categorizer.txt.
+ *
+ * <pre>
+ * Usage: CompactIntentModelTrainer &lt;training data&gt; &lt;output model&gt; [bucket bits]
+ * </pre>
+ */
+public class CompactIntentModelTrainer {
+    public static final int DEFAULT_BUCKET_BITS = 11;
+
+    private static final int EPOCHS = 200;
+    private static final float LEARNING_RATE = 0.5f;
+    private static final long SEED = 42;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: CompactIntentModelTrainer <training data> <output model> [bucket bits]");
+            return;
+        }
+        int bucketBits = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BUCKET_BITS;
+        try (InputStream in = new FileInputStream(args[0]);
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(args[1]))) {
+            train(in, out, bucketBits);
+        }
+    }
+
+    public static void train(InputStream trainingData, OutputStream out, int bucketBits) throws IOException {
+        // Category name to its samples, in order of first appearance.
+        Map<String, List<String[]>> samplesByCategory = new LinkedHashMap<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(trainingData, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens.length < 2 || tokens[0].startsWith("#")) continue;
+            samplesByCategory.computeIfAbsent(tokens[0], category -> new ArrayList<>())
+                    .add(Arrays.copyOfRange(tokens, 1, tokens.length));
+        }
+
+        String[] categories = samplesByCategory.keySet().toArray(new String[0]);
+        List<long[]> features = new ArrayList<>();
+        List<Integer> labels = new ArrayList<>();
+        for (int c = 0; c < categories.length; c++) {
+            for (String[] sample : samplesByCategory.get(categories[c])) {
+                features.add(CompactIntentModel.features(sample));
+                labels.add(c);
+                // Each line of faq_categorizer.txt is a bag of keywords rather than one phrase,
+                // so every keyword is also a sample on its own; otherwise long lines spread
+                // their weight so thin that one-word answers are decided by the biases.
+                for (String token : sample) {
+                    features.add(CompactIntentModel.features(new String[] { token }));
+                    labels.add(c);
+                }
+            }
+        }
+
+        int buckets = 1 << bucketBits;
+        int bucketMask = buckets - 1;
+        float[] weights = new float[buckets * categories.length];
+        // Biases stay 0: categories with more keywords would otherwise win every unknown word.
+        float[] biases = new float[categories.length];
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < features.size(); i++)
+            order.add(i);
+        Random random = new Random(SEED);
+        double[] scores = new double[categories.length];
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            Collections.shuffle(order, random);
+            float learningRate = LEARNING_RATE / (1 + epoch * 0.05f);
+            for (int i : order) {
+                long[] sample = features.get(i);
+                Arrays.fill(scores, 0);
+                for (int c = 0; c < categories.length; c++) {
+                    scores[c] = biases[c];
+                    for (long feature : sample)
+                        scores[c] += CompactIntentModel.sign(feature)
+                                * weights[CompactIntentModel.bucket(feature, bucketMask) * categories.length + c];
+                }
+                double[] probabilities = CompactIntentModel.softmax(scores);
+                for (int c = 0; c < categories.length; c++) {
+                    float gradient = (float) probabilities[c] - (labels.get(i) == c ? 1 : 0);
+                    for (long feature : sample)
+                        weights[CompactIntentModel.bucket(feature, bucketMask) * categories.length + c] -=
+                                learningRate * gradient * CompactIntentModel.sign(feature);
+                }
+            }
+        }
+
+        write(new DataOutputStream(out), bucketBits, categories, weights, biases);
+    }
+
+    private static void write(DataOutputStream out, int bucketBits, String[] categories, float[] weights, float[] biases)
+            throws IOException {
+        // Per category scale so that its largest weight maps to 127.
+        float[] scales = new float[categories.length];
+        for (int i = 0; i < weights.length; i++) {
+            int c = i % categories.length;
+            scales[c] = Math.max(scales[c], Math.abs(weights[i]) / 127f);
+        }
+
+        out.writeInt(CompactIntentModel.MAGIC);
+        out.writeInt(bucketBits);
+        out.writeInt(categories.length);
+        for (String category : categories) {
+            byte[] name = category.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+        }
+        for (int c = 0; c < categories.length; c++) {
+            out.writeFloat(scales[c]);
+            out.writeFloat(biases[c]);
+        }
+        for (int i = 0; i < weights.length; i++) {
+            float scale = scales[i % categories.length];
+            out.writeByte(scale == 0 ? 0 : Math.round(weights[i] / scale));
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,31 @@
+package com.inDrive.plugin.nlp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class FileModelLoader implements ModelLoader {
+    private File directory;
+
+    public FileModelLoader(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+        return new FileInputStream(new File(directory, name));
+    }
+
+    @Override
+    public ByteBuffer map(String name) throws IOException {
+        // The mapping stays valid after the channel is closed.
+        try (RandomAccessFile file = new RandomAccessFile(new File(directory, name), "r");
+             FileChannel channel = file.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
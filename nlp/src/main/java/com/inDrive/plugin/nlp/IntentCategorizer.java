@@ -0,0 +1,23 @@
+package com.inDrive.plugin.nlp;
+
+/**
+ * Scores the lemmas of a sentence against the intent categories the chatbot knows.
+ */
+public interface IntentCategorizer {
+    /**
+     * @return the probability of each category, in the order of {@link #getCategories()}
+     */
+    double[] categorize(String[] lemmas);
+
+    /**
+     * Categorize several sentences in one pass, e.g. the N-best hypotheses of the recognizer.
+     */
+    default double[][] categorize(String[][] lemmas) {
+        double[][] outcomes = new double[lemmas.length][];
+        for (int i = 0; i < lemmas.length; i++)
+            outcomes[i] = categorize(lemmas[i]);
+        return outcomes;
+    }
+
+    String[] getCategories();
+}
@@ -0,0 +1,29 @@
+package com.inDrive.plugin.nlp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Opens the named model and training resources used by the NLP pipeline. On Android these
+ * come from the APK assets; on a plain JVM they are read from a directory.
+ */
+public interface ModelLoader {
+    InputStream open(String name) throws IOException;
+
+    /**
+     * Map the named resource read-only, so it is paged in on demand instead of being copied to
+     * the heap. Loaders that cannot map fall back to reading it into a buffer.
+     */
+    default ByteBuffer map(String name) throws IOException {
+        try (InputStream is = open(name)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = is.read(chunk)) != -1)
+                bytes.write(chunk, 0, read);
+            return ByteBuffer.wrap(bytes.toByteArray()).asReadOnlyBuffer();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.inDrive.plugin.nlp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Android-free view of the NLP stages the chatbot runs on every user utterance.
+ */
+public interface NlpPipeline {
+    boolean isInitialized();
+
+    String[] detectSentences(String text);
+
+    String[] tokenize(String sentence);
+
+    String[] tagPOS(String[] tokens);
+
+    String[] lemmatize(String[] tokens, String[] posTags);
+
+    double[] categorize(String[] lemmas);
+
+    String getBestCategory(double[] outcomes);
+
+    /**
+     * @return the category whose probability is at {@code index} of the array returned by
+     * {@link #categorize(String[])}
+     */
+    String getCategory(int index);
+
+    int getNumberOfCategories();
+
+    default SentenceAnalysis analyze(String sentence) {
+        String[] tokens = tokenize(sentence);
+        String[] posTags = tagPOS(tokens);
+        String[] lemmas = lemmatize(tokens, posTags);
+        String[] categories = new String[getNumberOfCategories()];
+        for (int i = 0; i < categories.length; i++)
+            categories[i] = getCategory(i);
+        return new SentenceAnalysis(tokens, posTags, lemmas, categorize(lemmas), categories);
+    }
+
+    /**
+     * Analyze alternative transcriptions of the same utterance; implementations may batch the
+     * categorization of all of them.
+     */
+    default List<SentenceAnalysis> analyzeAll(String[] sentences) {
+        List<SentenceAnalysis> analyses = new ArrayList<>(sentences.length);
+        for (String sentence : sentences)
+            analyses.add(analyze(sentence));
+        return analyses;
+    }
+}
@@ -0,0 +1,265 @@
+package com.inDrive.plugin.nlp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import opennlp.tools.doccat.BagOfWordsFeatureGenerator;
+import opennlp.tools.doccat.DoccatFactory;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.doccat.DocumentSample;
+import opennlp.tools.doccat.DocumentSampleStream;
+import opennlp.tools.doccat.FeatureGenerator;
+import opennlp.tools.lemmatizer.LemmatizerME;
+import opennlp.tools.lemmatizer.LemmatizerModel;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.PlainTextByLineStream;
+import opennlp.tools.util.TrainingParameters;
+import opennlp.tools.util.model.ModelUtil;
+
+/**
+ * OpenNLP backed pipeline. Each model is loaded by its own method so that callers can load
+ * them in parallel. Models are shared, while the ME decoders, which are not thread safe, are
+ * created per thread, so one pipeline can serve concurrent conversations. The categorizer model
+ * can be replaced while the pipeline is serving; each call uses either the old or the new model.
+ * On low-memory devices a {@link CompactIntentModel} can be loaded instead of training the
+ * categorizer.
+ */
+public class OpenNlpPipeline implements NlpPipeline {
+    public static final String SENTENCE_MODEL = "en_sent.bin";
+    public static final String TOKENIZER_MODEL = "en_token.bin";
+    public static final String POS_MODEL = "en_pos_maxent.bin";
+    public static final String LEMMATIZER_MODEL = "en_lemmatizer.bin";
+    public static final String CATEGORIZER_TRAINING_DATA = "faq_categorizer.txt";
+
+    private ModelLoader modelLoader;
+
+    private AtomicReference<DoccatModel> categorizerModel = new AtomicReference<>();
+    private volatile IntentCategorizer compactCategorizer;
+    private volatile SentenceModel sentenceModel;
+    private volatile TokenizerModel tokenizerModel;
+    private volatile POSModel posModel;
+    private volatile LemmatizerModel lemmatizerModel;
+
+    private ThreadLocal<Categorizer> documentCategorizer = new ThreadLocal<>();
+    private ThreadLocal<SentenceDetectorME> sentenceDetector =
+            ThreadLocal.withInitial(() -> new SentenceDetectorME(sentenceModel));
+    private ThreadLocal<TokenizerME> tokenizer =
+            ThreadLocal.withInitial(() -> new TokenizerME(tokenizerModel));
+    private ThreadLocal<POSTaggerME> posTagger =
+            ThreadLocal.withInitial(() -> new POSTaggerME(posModel));
+    private ThreadLocal<LemmatizerME> lemmatizer =
+            ThreadLocal.withInitial(() -> new LemmatizerME(lemmatizerModel));
+
+    public OpenNlpPipeline(ModelLoader modelLoader) {
+        this.modelLoader = modelLoader;
+    }
+
+    public void loadSentenceModel() throws IOException {
+        try (InputStream is = modelLoader.open(SENTENCE_MODEL)) {
+            sentenceModel = new SentenceModel(is);
+        }
+    }
+
+    public void loadTokenizerModel() throws IOException {
+        try (InputStream is = modelLoader.open(TOKENIZER_MODEL)) {
+            tokenizerModel = new TokenizerModel(is);
+        }
+    }
+
+    public void loadPOSModel() throws IOException {
+        try (InputStream is = modelLoader.open(POS_MODEL)) {
+            posModel = new POSModel(is);
+        }
+    }
+
+    public void loadLemmatizerModel() throws IOException {
+        try (InputStream is = modelLoader.open(LEMMATIZER_MODEL)) {
+            lemmatizerModel = new LemmatizerModel(is);
+        }
+    }
+
+    /**
+     * Categorize with the memory-mapped compact intent model instead of the maxent model.
+     *
+     * @throws IOException
+     */
+    public void loadCompactIntentModel() throws IOException {
+        compactCategorizer = CompactIntentModel.load(modelLoader);
+    }
+
+    /**
+     * Train categorizer model as per the category sample training data we created.
+     *
+     * @throws IOException
+     */
+    public void trainCategorizerModel() throws IOException {
+        // faq_categorizer.txt is a custom training data with categories as per our chat
+        // requirements.
+        try (InputStream is = modelLoader.open(CATEGORIZER_TRAINING_DATA);
+             ObjectStream<String> lineStream = new PlainTextByLineStream(() -> is, StandardCharsets.UTF_8);
+             ObjectStream<DocumentSample> sampleStream = new DocumentSampleStream(lineStream)) {
+            categorizerModel.set(trainCategorizer(sampleStream));
+        }
+    }
+
+    /**
+     * Train a categorizer model with the parameters used for the bundled training data.
+     */
+    public static DoccatModel trainCategorizer(ObjectStream<DocumentSample> samples) throws IOException {
+        // Character n-grams and phonetic codes keep misrecognized words close to the right ones.
+        DoccatFactory factory = new DoccatFactory(new FeatureGenerator[]{
+                new BagOfWordsFeatureGenerator(),
+                new CharacterNgramFeatureGenerator(),
+                new PhoneticFeatureGenerator()
+        });
+
+        TrainingParameters params = ModelUtil.createDefaultTrainingParameters();
+        params.put(TrainingParameters.CUTOFF_PARAM, 0);
+
+        // Train a model with classifications from given samples.
+        return DocumentCategorizerME.train("en", samples, params, factory);
+    }
+
+    public DoccatModel getCategorizerModel() {
+        return categorizerModel.get();
+    }
+
+    /**
+     * Replace the categorizer model if it is still {@code expected}. Calls already running keep
+     * using the model they started with.
+     *
+     * @return false if the model was replaced by someone else in the meantime
+     */
+    public boolean replaceCategorizerModel(DoccatModel expected, DoccatModel model) {
+        return categorizerModel.compareAndSet(expected, model);
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return (categorizerModel.get() != null || compactCategorizer != null) && sentenceModel != null && tokenizerModel != null
+                && posModel != null && lemmatizerModel != null;
+    }
+
+    @Override
+    public String[] detectSentences(String text) {
+        return sentenceDetector.get().sentDetect(text);
+    }
+
+    @Override
+    public String[] tokenize(String sentence) {
+        return tokenizer.get().tokenize(sentence);
+    }
+
+    @Override
+    public String[] tagPOS(String[] tokens) {
+        return posTagger.get().tag(tokens);
+    }
+
+    @Override
+    public String[] lemmatize(String[] tokens, String[] posTags) {
+        return lemmatizer.get().lemmatize(tokens, posTags);
+    }
+
+    @Override
+    public double[] categorize(String[] lemmas) {
+        return categorizer().categorize(lemmas);
+    }
+
+    @Override
+    public String getBestCategory(double[] outcomes) {
+        int best = 0;
+        for (int i = 1; i < outcomes.length; i++) {
+            if (outcomes[i] > outcomes[best]) best = i;
+        }
+        return categorizer().getCategories()[best];
+    }
+
+    @Override
+    public String getCategory(int index) {
+        return categorizer().getCategories()[index];
+    }
+
+    @Override
+    public int getNumberOfCategories() {
+        return categorizer().getCategories().length;
+    }
+
+    @Override
+    public SentenceAnalysis analyze(String sentence) {
+        String[] tokens = tokenize(sentence);
+        String[] posTags = tagPOS(tokens);
+        String[] lemmas = lemmatize(tokens, posTags);
+        // Take the distribution and its categories from the same model, even if it is swapped.
+        IntentCategorizer categorizer = categorizer();
+        return new SentenceAnalysis(tokens, posTags, lemmas, categorizer.categorize(lemmas),
+                categorizer.getCategories());
+    }
+
+    @Override
+    public List<SentenceAnalysis> analyzeAll(String[] sentences) {
+        String[][] tokens = new String[sentences.length][];
+        String[][] posTags = new String[sentences.length][];
+        String[][] lemmas = new String[sentences.length][];
+        for (int i = 0; i < sentences.length; i++) {
+            tokens[i] = tokenize(sentences[i]);
+            posTags[i] = tagPOS(tokens[i]);
+            lemmas[i] = lemmatize(tokens[i], posTags[i]);
+        }
+
+        IntentCategorizer categorizer = categorizer();
+        double[][] distributions = categorizer.categorize(lemmas);
+        List<SentenceAnalysis> analyses = new ArrayList<>(sentences.length);
+        for (int i = 0; i < sentences.length; i++)
+            analyses.add(new SentenceAnalysis(tokens[i], posTags[i], lemmas[i], distributions[i],
+                    categorizer.getCategories()));
+        return analyses;
+    }
+
+    private IntentCategorizer categorizer() {
+        IntentCategorizer compact = compactCategorizer;
+        if (compact != null) return compact;
+
+        DoccatModel model = categorizerModel.get();
+        Categorizer categorizer = documentCategorizer.get();
+        if (categorizer == null || categorizer.model != model) {
+            categorizer = new Categorizer(model);
+            documentCategorizer.set(categorizer);
+        }
+        return categorizer;
+    }
+
+    private static class Categorizer implements IntentCategorizer {
+        private DoccatModel model;
+        private DocumentCategorizerME decoder;
+        private String[] categories;
+
+        Categorizer(DoccatModel model) {
+            this.model = model;
+            this.decoder = new DocumentCategorizerME(model);
+            this.categories = new String[decoder.getNumberOfCategories()];
+            for (int i = 0; i < categories.length; i++)
+                categories[i] = decoder.getCategory(i);
+        }
+
+        @Override
+        public double[] categorize(String[] lemmas) {
+            return decoder.categorize(lemmas);
+        }
+
+        @Override
+        public String[] getCategories() {
+            return categories;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.inDrive.plugin.nlp;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import opennlp.tools.doccat.FeatureGenerator;
+
+/**
+ * Double Metaphone codes of every token, so words the recognizer heard as a similar sounding
+ * word ("bouquet" for "book it") map to the same feature.
+ */
+public class PhoneticFeatureGenerator implements FeatureGenerator {
+    private DoubleMetaphone encoder = new DoubleMetaphone();
+
+    @Override
+    public Collection<String> extractFeatures(String[] text, Map<String, Object> extraInformation) {
+        List<String> features = new ArrayList<>();
+        for (String token : text) {
+            String primary = encoder.doubleMetaphone(token);
+            if (primary == null || primary.isEmpty()) continue;
+            features.add("dm=" + primary);
+            String alternate = encoder.doubleMetaphone(token, true);
+            if (alternate != null && !alternate.isEmpty() && !alternate.equals(primary))
+                features.add("dm=" + alternate);
+        }
+        return features;
+    }
+}
@@ -0,0 +1,19 @@
+package com.inDrive.plugin.nlp;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class SentenceAnalysis {
+    private String[] tokens;
+
+    private String[] posTags;
+
+    private String[] lemmas;
+
+    private double[] categoryDistribution;
+
+    // Category of each entry of categoryDistribution.
+    private String[] categories;
+}
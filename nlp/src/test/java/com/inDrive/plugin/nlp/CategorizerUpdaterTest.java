@@ -0,0 +1,105 @@
+package com.inDrive.plugin.nlp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import opennlp.tools.util.InsufficientTrainingDataException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CategorizerUpdaterTest {
+    private static final String TRAINING_DATA = String.join("\n",
+            "greeting hi hello hey there good morning",
+            "greeting hello how are you",
+            "book_cab_instruction book a cab for me",
+            "book_cab_instruction call me a cab to the airport",
+            "driver_inquiry who is the driver",
+            "driver_inquiry what is the name of the driver");
+    // One category only, which the trainer refuses.
+    private static final String UNTRAINABLE_DATA = "greeting hi hello hey there";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeModelLoader modelLoader = new FakeModelLoader();
+    private OpenNlpPipeline pipeline;
+    private File samplesFile;
+    private CategorizerUpdater updater;
+
+    @Before
+    public void setUp() throws IOException {
+        modelLoader.resources.put(OpenNlpPipeline.CATEGORIZER_TRAINING_DATA, TRAINING_DATA);
+        pipeline = new OpenNlpPipeline(modelLoader);
+        pipeline.trainCategorizerModel();
+        samplesFile = folder.newFile("intent_samples.txt");
+        updater = new CategorizerUpdater(pipeline, modelLoader, samplesFile);
+    }
+
+    @After
+    public void tearDown() {
+        updater.stop();
+    }
+
+    @Test
+    public void unchangedSamplesAreNotRetrained() throws Exception {
+        Files.write(samplesFile.toPath(), "greeting good evening\n".getBytes(StandardCharsets.UTF_8));
+        updater.requestUpdate().get();
+        int opens = modelLoader.trainingDataOpens;
+
+        assertFalse(updater.requestUpdate().get());
+        assertEquals(opens, modelLoader.trainingDataOpens);
+    }
+
+    @Test
+    public void failedTrainingIsRetriedWithoutTheSamplesChanging() throws Exception {
+        Files.write(samplesFile.toPath(), "greeting good evening\n".getBytes(StandardCharsets.UTF_8));
+        modelLoader.resources.put(OpenNlpPipeline.CATEGORIZER_TRAINING_DATA, UNTRAINABLE_DATA);
+        try {
+            updater.requestUpdate().get();
+            fail("Training on one category should fail");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof InsufficientTrainingDataException);
+        }
+        int opens = modelLoader.trainingDataOpens;
+
+        modelLoader.resources.put(OpenNlpPipeline.CATEGORIZER_TRAINING_DATA, TRAINING_DATA);
+        updater.requestUpdate().get();
+        assertEquals(opens + 1, modelLoader.trainingDataOpens);
+
+        // Handled now, so the next check leaves it alone.
+        updater.requestUpdate().get();
+        assertEquals(opens + 1, modelLoader.trainingDataOpens);
+    }
+
+    private static class FakeModelLoader implements ModelLoader {
+        private Map<String, String> resources = new HashMap<>();
+        private volatile int trainingDataOpens;
+
+        @Override
+        public InputStream open(String name) throws IOException {
+            String resource = resources.get(name);
+            if (resource == null)
+                throw new FileNotFoundException(name);
+            if (name.equals(OpenNlpPipeline.CATEGORIZER_TRAINING_DATA))
+                trainingDataOpens++;
+            return new ByteArrayInputStream(resource.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}